@@ -0,0 +1,125 @@
+package src.main.java;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the parts of the game that run on every board or every click, on the headless {@link Board}.
+ * The size is either a {@link Difficulty} name or a custom size written as rows x columns, custom sizes get the
+ * same share of bombs as expert.
+ *
+ * Run with -prof gc to also see how much each one allocates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+    @Param({"EASY", "INTERMEDIATE", "EXPERT", "1000x1000", "2000x2000"})
+    public String size;
+
+    private BoardSize boardSize;
+    private int startIndex;
+    private long seed;
+    private Board board;
+    private final int[] neighbours = new int[8];
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        boardSize = parseSize(size);
+        startIndex = boardSize.getTilesAmount() / 2 + boardSize.getColumnsAmount() / 2;
+        board = BoardGenerator.generate(boardSize, 42, startIndex);
+    }
+
+    static BoardSize parseSize(String size){
+        int separator = size.indexOf('x');
+        if(separator < 0) return BoardSize.of(Difficulty.valueOf(size));
+
+        int rows = Integer.parseInt(size.substring(0, separator));
+        int columns = Integer.parseInt(size.substring(separator + 1));
+        Difficulty expert = Difficulty.EXPERT;
+        long bombs = (long) rows * columns * expert.getBombsAmount()
+                / (expert.getRowsAmount() * expert.getColumnsAmount());
+        return BoardSize.custom(rows, columns, (int) bombs);
+    }
+
+    /**
+     * Was Main.setBombs, a new board with its bombs placed and counted
+     */
+    @Benchmark
+    public Board generate(){
+        return BoardGenerator.generate(boardSize, seed++, startIndex);
+    }
+
+    /**
+     * Was Tile.numberBombsNearby for every tile
+     */
+    @Benchmark
+    public Board countBombsNearby(){
+        board.countBombsNearby();
+        return board;
+    }
+
+    /**
+     * Was Tile.getSurroundingTiles for every tile
+     */
+    @Benchmark
+    public void neighbours(Blackhole blackhole){
+        int tiles = board.getTilesAmount();
+        for(int index = 0; index < tiles; index++){
+            int amount = board.neighbours(index, neighbours);
+            blackhole.consume(neighbours[amount - 1]);
+        }
+    }
+
+    /**
+     * Was Main.checkWin
+     */
+    @Benchmark
+    public boolean checkWin(){
+        return board.isWon();
+    }
+
+    /**
+     * Was Tile.showNearbyTiles on the first click of a game. The board is made again before every call since
+     * showing tiles cannot be undone.
+     */
+    @State(Scope.Thread)
+    public static class FirstClick {
+        Board board;
+        int startIndex;
+
+        @Setup(Level.Invocation)
+        public void setUp(BoardBenchmark benchmark){
+            startIndex = benchmark.startIndex;
+            board = BoardGenerator.generate(benchmark.boardSize, benchmark.seed++, startIndex);
+        }
+    }
+
+    @Benchmark
+    public int[] revealFirstClick(FirstClick state){
+        return state.board.reveal(state.startIndex);
+    }
+
+    /**
+     * Largest possible opening, a board without bombs shows every tile from one click
+     */
+    @State(Scope.Thread)
+    public static class EmptyBoard {
+        Board board;
+
+        @Setup(Level.Invocation)
+        public void setUp(BoardBenchmark benchmark){
+            board = new Board(benchmark.boardSize.getRowsAmount(), benchmark.boardSize.getColumnsAmount());
+        }
+    }
+
+    @Benchmark
+    public int[] revealWholeBoard(EmptyBoard state){
+        return state.board.reveal(0);
+    }
+}
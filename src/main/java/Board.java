@@ -0,0 +1,569 @@
+package src.main.java;
+
+import java.util.Arrays;
+
+/**
+ * Holds the state of a game without any JavaFX nodes, so the game can be played without a scene graph.
+ * Bombs, shown tiles and marked tiles are kept in bitsets (one bit for each tile) and the amount of bombs nearby
+ * each tile is kept in a byte for each tile.
+ *
+ * Tiles are found by their index, where index = y * columnsAmount + x. Which tiles are nearby each other is set by
+ * the board's {@link Topology}, the usual square board unless another one is given.
+ */
+public class Board {
+    // 4 MB of openings kept by every board at most
+    private static final int KEPT_PARENTS_TILES = 1 << 20;
+
+    private final Topology topology;
+    // The topology's neighbour arrays, null when neighbours are found from x and y
+    private final int[] neighbourOffsets;
+    private final int[] neighbourTargets;
+    private final int rowsAmount;
+    private final int columnsAmount;
+    private final int tilesAmount;
+
+    private final long[] bombs;
+    private final long[] shown;
+    private final long[] marked;
+    private final byte[] bombsNearby;
+
+    private int bombsAmount;
+
+    // Kept up to date on every move so winning and losing are known without looking at the whole board
+    private int hiddenSafeAmount;
+    private int correctMarksAmount;
+    private int wrongMarksAmount;
+    private boolean exploded = false;
+    private int explodedIndex = -1;
+    private boolean bombsShown = false;
+
+    // Moves add the tiles they change here when it is set
+    private ChangeBatch changes;
+
+    // Reused by reveal so opening tiles does not allocate, the queue is only created on the first reveal
+    private int[] revealQueue;
+    // 3BV of the bombs placed, -1 until it is worked out. Reading it from another thread waits for the work.
+    private int threeBV = -1;
+    // Reused by getThreeBV on boards of up to KEPT_PARENTS_TILES tiles, larger boards only work it out once for
+    // each placing of the bombs and let the arrays go afterwards
+    private int[] openingParents;
+    private long[] openingNeighbours;
+    private final int[] surrounding = new int[Topology.MAX_DEGREE];
+    // Neighbour lookups made by open, for the metrics
+    private long neighbourLookups;
+
+    public Board(int rowsAmount, int columnsAmount){
+        this(rowsAmount, columnsAmount, null, null, null);
+    }
+
+    /**
+     * Board with the size and nearby tiles of the topology. The layers of a CUBE topology are rows one after
+     * another, so the board has layers * rows rows.
+     */
+    public Board(Topology topology){
+        this(topology, null, null, null);
+    }
+
+    private Board(int rowsAmount, int columnsAmount, long[] bombs, long[] shown, long[] marked){
+        this(square(rowsAmount, columnsAmount), bombs, shown, marked);
+    }
+
+    private Board(Topology topology, long[] bombs, long[] shown, long[] marked){
+        this.topology = topology;
+        this.neighbourOffsets = topology.getOffsets();
+        this.neighbourTargets = topology.getTargets();
+        this.rowsAmount = topology.getLayersAmount() * topology.getRowsAmount();
+        this.columnsAmount = topology.getColumnsAmount();
+        this.tilesAmount = topology.getTilesAmount();
+
+        int words = getWordsAmount(tilesAmount);
+        this.bombs = bombs != null ? bombs : new long[words];
+        this.shown = shown != null ? shown : new long[words];
+        this.marked = marked != null ? marked : new long[words];
+        if(this.bombs.length != words || this.shown.length != words || this.marked.length != words){
+            throw new IllegalArgumentException("Bitsets do not fit a " + rowsAmount + "x" + columnsAmount + " board");
+        }
+        bombsNearby = new byte[tilesAmount];
+        hiddenSafeAmount = tilesAmount;
+    }
+
+    private static Topology square(int rowsAmount, int columnsAmount){
+        if(rowsAmount <= 0 || columnsAmount <= 0){
+            throw new IllegalArgumentException("Board must have at least one row and one column");
+        }
+        if((long) rowsAmount * columnsAmount > Integer.MAX_VALUE){
+            throw new IllegalArgumentException("Board is too large: " + rowsAmount + "x" + columnsAmount);
+        }
+        return Topology.square(rowsAmount, columnsAmount);
+    }
+
+    public Topology getTopology(){
+        return topology;
+    }
+
+    /**
+     * Makes a board again from the bitsets of {@link #copyBits()}, the arrays are used as they are
+     */
+    public static Board fromBits(int rowsAmount, int columnsAmount, long[] bombs, long[] shown, long[] marked){
+        Board board = new Board(rowsAmount, columnsAmount, bombs, shown, marked);
+        int bombsAmount = 0;
+        int shownSafeAmount = 0;
+        for(int word = 0; word < bombs.length; word++){
+            bombsAmount += Long.bitCount(bombs[word]);
+            shownSafeAmount += Long.bitCount(shown[word] & ~bombs[word]);
+            board.correctMarksAmount += Long.bitCount(marked[word] & bombs[word]);
+            board.wrongMarksAmount += Long.bitCount(marked[word] & ~bombs[word]);
+            long explodedBits = shown[word] & bombs[word];
+            if(explodedBits != 0){
+                board.exploded = true;
+                board.explodedIndex = (word << 6) + Long.numberOfTrailingZeros(explodedBits);
+            }
+        }
+        board.bombsAmount = bombsAmount;
+        board.hiddenSafeAmount = board.tilesAmount - bombsAmount - shownSafeAmount;
+        board.countBombsNearby();
+        return board;
+    }
+
+    /**
+     * @return Copies of the bombs, shown and marked bitsets, one bit for each tile
+     */
+    public long[][] copyBits(){
+        return new long[][]{bombs.clone(), shown.clone(), marked.clone()};
+    }
+
+    /**
+     * @return Copy of the amount of bombs nearby every tile, for the tiles that are not shown too
+     */
+    public byte[] copyBombsNearby(){
+        return bombsNearby.clone();
+    }
+
+    /**
+     * @return Amount of longs in each bitset of a board with this many tiles
+     */
+    public static int getWordsAmount(int tilesAmount){
+        return (tilesAmount + 63) >>> 6;
+    }
+
+    /**
+     * Removes every bomb, shown tile and marked tile so the board can be used for another game of the same size
+     */
+    public void clear(){
+        Arrays.fill(bombs, 0);
+        Arrays.fill(shown, 0);
+        Arrays.fill(marked, 0);
+        Arrays.fill(bombsNearby, (byte) 0);
+        bombsAmount = 0;
+        hiddenSafeAmount = tilesAmount;
+        correctMarksAmount = 0;
+        wrongMarksAmount = 0;
+        exploded = false;
+        explodedIndex = -1;
+        bombsShown = false;
+        forgetThreeBV();
+    }
+
+    /**
+     * Makes every following move add the tiles it changes to the batch
+     * @param changes Batch to add to, null to stop recording
+     */
+    public void setChanges(ChangeBatch changes){
+        this.changes = changes;
+    }
+
+    public int getRowsAmount(){
+        return rowsAmount;
+    }
+
+    public int getColumnsAmount(){
+        return columnsAmount;
+    }
+
+    public int getTilesAmount(){
+        return tilesAmount;
+    }
+
+    public int getBombsAmount(){
+        return bombsAmount;
+    }
+
+    public int index(int x, int y){
+        return y * columnsAmount + x;
+    }
+
+    public int getX(int index){
+        return index % columnsAmount;
+    }
+
+    public int getY(int index){
+        return index / columnsAmount;
+    }
+
+    /**
+     * Puts a bomb on the tile. {@link #countBombsNearby()} must be called once every bomb is placed.
+     */
+    public void setBomb(int index){
+        if(!get(bombs, index)){
+            set(bombs, index);
+            bombsAmount++;
+
+            if(!get(shown, index)) hiddenSafeAmount--;
+            if(get(marked, index)){
+                wrongMarksAmount--;
+                correctMarksAmount++;
+            }
+        }
+    }
+
+    public boolean isBomb(int index){
+        return get(bombs, index);
+    }
+
+    /**
+     * Fills in the amount of bombs nearby every tile. Square boards use {@link BombCounter}, 64 tiles at a time,
+     * other shapes add one to the neighbours of every bomb from the topology's arrays.
+     */
+    public void countBombsNearby(){
+        forgetThreeBV();
+        if(topology.getShape() == Topology.Shape.SQUARE){
+            BombCounter.count(bombs, rowsAmount, columnsAmount, bombsNearby);
+            return;
+        }
+        Arrays.fill(bombsNearby, (byte) 0);
+        // Every shape's tiles touch each other both ways, so a bomb's neighbours are the tiles it is nearby
+        for(int word = 0; word < bombs.length; word++){
+            long bits = bombs[word];
+            while(bits != 0){
+                int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                for(int i = neighbourOffsets[index]; i < neighbourOffsets[index + 1]; i++){
+                    bombsNearby[neighbourTargets[i]]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return int between 0 and the topology's degree, at most 8
+     */
+    public int getBombsNearby(int index){
+        return bombsNearby[index];
+    }
+
+    /**
+     * Shows a single tile. Marked tiles cannot be shown.
+     * @return true if the tile was not shown before
+     */
+    public boolean show(int index){
+        if(get(shown, index) || get(marked, index)) return false;
+        set(shown, index);
+        countShown(index);
+        if(changes != null) changes.add(index, getState(index));
+        return true;
+    }
+
+    /**
+     * Shows the tile and, when it has no bombs nearby, keeps showing the surrounding tiles until every tile on the
+     * edge of the opening has a number. Uses a queue instead of recursion so any size of opening fits, and looks
+     * at the amount of bombs nearby each tile only once.
+     * @param index Tile that was clicked on
+     * @return  Indexes of every tile that was shown, empty if the tile was already shown or is marked
+     */
+    public int[] reveal(int index){
+        int amount = open(index);
+        return amount == 0 ? new int[0] : Arrays.copyOf(revealQueue, amount);
+    }
+
+    /**
+     * Same as {@link #reveal(int)} without making a new array. The indexes of the tiles that were shown are the
+     * first ones in {@link #getOpened()} until the next call.
+     * @return  Amount of tiles that were shown
+     */
+    public int open(int index){
+        if(get(shown, index) || get(marked, index)) return 0;
+        if(revealQueue == null){
+            revealQueue = new int[tilesAmount];
+        }
+        int[] queue = revealQueue;
+        // With neighbour arrays the neighbours are read straight from them instead of being copied out
+        int[] neighbours = neighbourTargets != null ? neighbourTargets : surrounding;
+
+        set(shown, index);
+        countShown(index);
+        if(changes != null) changes.add(index, getState(index));
+        queue[0] = index;
+        int head = 0;
+        int tail = 1;
+        while(head < tail){
+            int tile = queue[head++];
+            // Bombs and numbered tiles are the edge of the opening
+            if(bombsNearby[tile] != 0 || get(bombs, tile)) continue;
+
+            int from = 0;
+            int to;
+            if(neighbourTargets != null){
+                from = neighbourOffsets[tile];
+                to = neighbourOffsets[tile + 1];
+            }else{
+                to = neighbours(tile, neighbours);
+            }
+            neighbourLookups++;
+            for(int i = from; i < to; i++){
+                int adjacent = neighbours[i];
+                // A tile with no bombs nearby has no bomb neighbours, so only shown and marked tiles are skipped
+                if(get(shown, adjacent) || get(marked, adjacent)) continue;
+                set(shown, adjacent);
+                hiddenSafeAmount--;
+                queue[tail++] = adjacent;
+                if(changes != null) changes.add(adjacent, bombsNearby[adjacent]);
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * @return Tiles shown by the last {@link #open(int)}, only the first ones returned by it are valid
+     */
+    public int[] getOpened(){
+        return revealQueue;
+    }
+
+    /**
+     * Covers shown tiles again, used to take back an {@link #open(int)}
+     * @param tiles  Tiles to cover, the first amount of them are used
+     */
+    public void cover(int[] tiles, int amount){
+        for(int i = 0; i < amount; i++){
+            int index = tiles[i];
+            if(!get(shown, index)) continue;
+            clear(shown, index);
+            if(get(bombs, index)){
+                exploded = false;
+                explodedIndex = -1;
+            }else{
+                hiddenSafeAmount++;
+            }
+            if(changes != null) changes.add(index, getState(index));
+        }
+    }
+
+    /**
+     * @return Neighbour lookups made while opening tiles since the board was made
+     */
+    public long getNeighbourLookups(){
+        return neighbourLookups;
+    }
+
+    public boolean isShown(int index){
+        return get(shown, index);
+    }
+
+    /**
+     * Marks a tile the player thinks is a bomb. Shown tiles cannot be marked.
+     * @return true if the tile was not marked before
+     */
+    public boolean mark(int index){
+        if(get(marked, index) || get(shown, index)) return false;
+        set(marked, index);
+        if(get(bombs, index)){
+            correctMarksAmount++;
+        }else{
+            wrongMarksAmount++;
+        }
+        if(changes != null) changes.add(index, TileState.MARKED);
+        return true;
+    }
+
+    /**
+     * @return true if the tile was marked before
+     */
+    public boolean unmark(int index){
+        if(!get(marked, index)) return false;
+        clear(marked, index);
+        if(get(bombs, index)){
+            correctMarksAmount--;
+        }else{
+            wrongMarksAmount--;
+        }
+        if(changes != null) changes.add(index, getState(index));
+        return true;
+    }
+
+    public boolean isMarked(int index){
+        return get(marked, index);
+    }
+
+    /**
+     * 3BV is the least amount of clicks that clears the board: one for each opening (group of touching tiles
+     * without bombs nearby, with the numbers around it) and one for each number that is not next to an opening.
+     *
+     * Worked out in one pass over the tiles with a union-find: every tile without bombs nearby starts as its own
+     * opening and is joined with the openings of its neighbours that came before it, each join is one opening
+     * less. The neighbours of openings are set in a bitset on the way, so the numbers not next to one are then
+     * counted 64 tiles at a time.
+     *
+     * It is only worked out on the first call after the bombs are placed, later calls return the same amount. The
+     * bombs must not change while it is worked out, but moves on the board may be played from another thread.
+     */
+    public synchronized int getThreeBV(){
+        if(threeBV < 0) threeBV = countThreeBV();
+        return threeBV;
+    }
+
+    private synchronized void forgetThreeBV(){
+        threeBV = -1;
+    }
+
+    private int countThreeBV(){
+        int[] parents;
+        long[] touched;
+        if(tilesAmount <= KEPT_PARENTS_TILES){
+            if(openingParents == null){
+                openingParents = new int[tilesAmount];
+                openingNeighbours = new long[bombs.length];
+            }
+            parents = openingParents;
+            touched = openingNeighbours;
+            Arrays.fill(touched, 0);
+        }else{
+            parents = new int[tilesAmount];
+            touched = new long[bombs.length];
+        }
+        // Not the surrounding array of open, which may be running on the FX thread
+        int[] neighbours = new int[Topology.MAX_DEGREE];
+        int threeBV = 0;
+
+        for(int index = 0; index < tilesAmount; index++){
+            if(bombsNearby[index] != 0 || get(bombs, index)) continue;
+            parents[index] = index;
+            set(touched, index);
+            threeBV++;
+            int amount = neighbours(index, neighbours);
+            // A tile without bombs nearby has no bomb neighbours, so each neighbour is a number or an opening
+            for(int i = 0; i < amount; i++){
+                int adjacent = neighbours[i];
+                set(touched, adjacent);
+                if(adjacent < index && bombsNearby[adjacent] == 0 && join(parents, index, adjacent)) threeBV--;
+            }
+        }
+        // Numbers no opening shows, the bits past the last tile are left out
+        for(int word = 0; word < bombs.length; word++){
+            long untouched = ~(bombs[word] | touched[word]);
+            if(word == bombs.length - 1 && (tilesAmount & 63) != 0) untouched &= (1L << tilesAmount) - 1;
+            threeBV += Long.bitCount(untouched);
+        }
+        return threeBV;
+    }
+
+    /**
+     * Joins the openings of two tiles, the smaller root becomes the root of both
+     * @return false if they were already the same opening
+     */
+    private static boolean join(int[] parents, int a, int b){
+        int rootA = root(parents, a);
+        int rootB = root(parents, b);
+        if(rootA == rootB) return false;
+        if(rootA < rootB){
+            parents[rootB] = rootA;
+        }else{
+            parents[rootA] = rootB;
+        }
+        return true;
+    }
+
+    /**
+     * Finds the root of the tile's opening, halving the path on the way so later finds are shorter
+     */
+    private static int root(int[] parents, int index){
+        while(parents[index] != index){
+            parents[index] = parents[parents[index]];
+            index = parents[index];
+        }
+        return index;
+    }
+
+    /**
+     * The player wins when all tiles are shown or marked, all marked tiles are bombs and all bombs are marked.
+     */
+    public boolean isWon(){
+        return !exploded && hiddenSafeAmount == 0 && wrongMarksAmount == 0 && correctMarksAmount == bombsAmount;
+    }
+
+    /**
+     * @return true once a bomb has been shown
+     */
+    public boolean isLost(){
+        return exploded;
+    }
+
+    /**
+     * @return Amount of tiles without a bomb that still have to be shown
+     */
+    public int getHiddenSafeAmount(){
+        return hiddenSafeAmount;
+    }
+
+    public int getMarkedAmount(){
+        return correctMarksAmount + wrongMarksAmount;
+    }
+
+    /**
+     * Lets the player see every bomb, used once they lost. Only the bombs are visited.
+     */
+    public void showBombs(){
+        bombsShown = true;
+        if(changes == null) return;
+        for(int word = 0; word < bombs.length; word++){
+            long bits = bombs[word];
+            while(bits != 0){
+                int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                changes.add(index, getState(index));
+            }
+        }
+    }
+
+    /**
+     * @return What the player sees on the tile, one of the {@link TileState} values
+     */
+    public byte getState(int index){
+        boolean isBomb = get(bombs, index);
+        if(isBomb && index == explodedIndex) return TileState.EXPLODED;
+        if(isBomb && (bombsShown || get(shown, index))) return TileState.BOMB;
+        if(get(shown, index)) return bombsNearby[index];
+        if(get(marked, index)) return TileState.MARKED;
+        return TileState.COVERED;
+    }
+
+    private void countShown(int index){
+        if(get(bombs, index)){
+            exploded = true;
+            explodedIndex = index;
+        }else{
+            hiddenSafeAmount--;
+        }
+    }
+
+    /**
+     * Puts the indexes of the tiles surrounding the middle tile into the given array.
+     * @param index The middle tile
+     * @param into  Array with room for at least {@link Topology#MAX_DEGREE} indexes
+     * @return  The amount of surrounding tiles, anywhere between 0 to 8
+     */
+    public int neighbours(int index, int[] into){
+        return topology.neighbours(index, into);
+    }
+
+    private static boolean get(long[] bits, int index){
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void set(long[] bits, int index){
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static void clear(long[] bits, int index){
+        bits[index >>> 6] &= ~(1L << index);
+    }
+}
@@ -0,0 +1,178 @@
+package src.main.java;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Places bombs on a {@link Board}. The same size, seed and first click always give the same board.
+ *
+ * Bombs are picked with a partial Fisher-Yates shuffle over the tiles that are allowed to have a bomb (every tile
+ * except the first click and the tiles around it), so placing them never retries and takes the same time at any
+ * amount of bombs.
+ */
+public final class BoardGenerator {
+    // Boards in a row a 3BV range may turn down before it is taken as one no board has
+    public static final int MAX_TRIES = 100_000;
+
+    private BoardGenerator(){
+    }
+
+    /**
+     * Creates a board and places its bombs
+     * @param startIndex First tile the player clicked on
+     */
+    public static Board generate(BoardSize size, long seed, int startIndex){
+        Board board = new Board(size.getRowsAmount(), size.getColumnsAmount());
+        placeBombs(board, size.getBombsAmount(), seed, startIndex);
+        return board;
+    }
+
+    /**
+     * Creates a board of any shape and places its bombs
+     * @param startIndex First tile the player clicked on
+     */
+    public static Board generate(Topology topology, int bombsAmount, long seed, int startIndex){
+        Board board = new Board(topology);
+        placeBombs(board, bombsAmount, seed, startIndex);
+        return board;
+    }
+
+    /**
+     * Places bombs on an empty board and counts the bombs nearby every tile
+     * @param startIndex First tile the player clicked on, it and the surrounding tiles never get a bomb
+     * @throws IllegalArgumentException if there are more bombs than tiles allowed to have one
+     */
+    public static void placeBombs(Board board, int bombsAmount, long seed, int startIndex){
+        int[] startArea = getStartArea(board, startIndex);
+        int allowedAmount = board.getTilesAmount() - startArea.length;
+        if(bombsAmount < 0 || bombsAmount > allowedAmount){
+            throw new IllegalArgumentException("Cannot place " + bombsAmount + " bombs on "
+                    + allowedAmount + " tiles");
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        // The shuffle only needs to remember the places it swapped. With few bombs a small hash table is enough,
+        // with many bombs a plain array of the allowed tiles is smaller.
+        if((long) bombsAmount * 8 < allowedAmount){
+            SwapTable swaps = new SwapTable(bombsAmount);
+            for(int i = 0; i < bombsAmount; i++){
+                int j = i + random.nextInt(allowedAmount - i);
+                int picked = swaps.get(j);
+                swaps.put(j, swaps.get(i));
+                board.setBomb(skipStartArea(picked, startArea));
+            }
+        }else{
+            int[] allowed = new int[allowedAmount];
+            for(int i = 0; i < allowedAmount; i++){
+                allowed[i] = i;
+            }
+            for(int i = 0; i < bombsAmount; i++){
+                int j = i + random.nextInt(allowedAmount - i);
+                int picked = allowed[j];
+                allowed[j] = allowed[i];
+                board.setBomb(skipStartArea(picked, startArea));
+            }
+        }
+
+        board.countBombsNearby();
+    }
+
+    /**
+     * Places bombs from seed, seed + 1 and so on until the board's {@link Board#getThreeBV() 3BV} is in the range.
+     * The board is cleared before every try after the first.
+     * @param minThreeBV Least 3BV kept
+     * @param maxThreeBV Most 3BV kept
+     * @return Seed of the board that was kept
+     * @throws IllegalArgumentException if none of {@link #MAX_TRIES} boards had a 3BV in the range
+     */
+    public static long placeBombs(Board board, int bombsAmount, long seed, int startIndex, int minThreeBV,
+                                  int maxThreeBV){
+        for(int i = 0; i < MAX_TRIES; i++){
+            if(i > 0) board.clear();
+            placeBombs(board, bombsAmount, seed + i, startIndex);
+            if(isInRange(board, minThreeBV, maxThreeBV)) return seed + i;
+        }
+        throw new IllegalArgumentException("No board with a 3BV between " + minThreeBV + " and " + maxThreeBV
+                + " in " + MAX_TRIES + " tries");
+    }
+
+    /**
+     * @return true if the 3BV of the board with its bombs placed is between min and max, both included
+     */
+    public static boolean isInRange(Board board, int minThreeBV, int maxThreeBV){
+        int threeBV = board.getThreeBV();
+        return threeBV >= minThreeBV && threeBV <= maxThreeBV;
+    }
+
+    /**
+     * @return The first click and the tiles surrounding it, smallest index first
+     */
+    /**
+     * @return Most bombs that can be placed when the game starts on the tile, every tile but it and its neighbours
+     */
+    public static int maxBombs(Board board, int startIndex){
+        return board.getTilesAmount() - getStartArea(board, startIndex).length;
+    }
+
+    private static int[] getStartArea(Board board, int startIndex){
+        int[] area = new int[Topology.MAX_DEGREE + 1];
+        int amount = board.neighbours(startIndex, area);
+        area[amount++] = startIndex;
+        area = Arrays.copyOf(area, amount);
+        Arrays.sort(area);
+        return area;
+    }
+
+    /**
+     * Turns the position among the allowed tiles into the index of the tile on the board
+     */
+    private static int skipStartArea(int position, int[] startArea){
+        int index = position;
+        for(int startTile : startArea){
+            if(startTile > index) break;
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Open addressing map from position to the tile that was swapped there. Positions that are not in the table
+     * still hold themselves.
+     */
+    private static final class SwapTable {
+        private final int[] keys;  // Position + 1, 0 means empty
+        private final int[] values;
+        private final int mask;
+
+        SwapTable(int expectedAmount){
+            int capacity = Integer.highestOneBit(Math.max(expectedAmount, 1) * 2 - 1) << 1;
+            keys = new int[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        int get(int position){
+            for(int slot = hash(position); ; slot = (slot + 1) & mask){
+                int key = keys[slot];
+                if(key == 0) return position;
+                if(key == position + 1) return values[slot];
+            }
+        }
+
+        void put(int position, int value){
+            for(int slot = hash(position); ; slot = (slot + 1) & mask){
+                int key = keys[slot];
+                if(key == 0 || key == position + 1){
+                    keys[slot] = position + 1;
+                    values[slot] = value;
+                    return;
+                }
+            }
+        }
+
+        private int hash(int position){
+            int hash = position * 0x9E3779B9;
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+    }
+}
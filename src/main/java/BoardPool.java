@@ -0,0 +1,211 @@
+package src.main.java;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps boards ready that can be solved from the first click without guessing, for every board size and first
+ * click. A board comes back from its size, seed and first click ({@link BoardGenerator}), so only the seed is kept.
+ *
+ * Finding such a board means making boards until the {@link Solver} finishes one without guessing, which takes a
+ * few milliseconds on expert. Background threads do this and keep a few seeds ready for each first click, so
+ * {@link #poll} usually has one at once. When it has none, {@link #take} puts the search for that first click in
+ * front of every slot waiting to be filled and waits for it, so an ordinary board is never handed out.
+ *
+ * A pool can also only keep boards with a 3BV in a range. The 3BV is looked at before the solver plays, since it
+ * takes a fraction of the time, so boards outside the range cost little.
+ */
+public class BoardPool {
+    private final int capacity;
+    private final int minThreeBV;
+    private final int maxThreeBV;
+    private final ConcurrentHashMap<Key, Slot> slots = new ConcurrentHashMap<>();
+    // Slots wait here to be filled, a player waiting for a board is put at the front
+    private final LinkedBlockingDeque<Runnable> waiting = new LinkedBlockingDeque<>();
+    private final ThreadPoolExecutor workers;
+
+    /**
+     * @param capacity Seeds kept ready for each board size and first click
+     */
+    public BoardPool(int capacity){
+        this(capacity, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param capacity   Seeds kept ready for each board size and first click
+     * @param minThreeBV Least 3BV of the boards handed out
+     * @param maxThreeBV Most 3BV of the boards handed out
+     */
+    public BoardPool(int capacity, int minThreeBV, int maxThreeBV){
+        this.capacity = capacity;
+        this.minThreeBV = minThreeBV;
+        this.maxThreeBV = maxThreeBV;
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, waiting, runnable -> {
+            Thread thread = new Thread(runnable, "Board pool");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        // Work put straight into the queue is only run by threads that already exist
+        workers.prestartAllCoreThreads();
+    }
+
+    /**
+     * Starts filling the pool for every first click on this board size
+     */
+    public void prefill(BoardSize size){
+        for(int startIndex = 0; startIndex < size.getTilesAmount(); startIndex++){
+            refill(new Key(size, startIndex));
+        }
+    }
+
+    /**
+     * Hands out the seed of a board that needs no guessing if one is ready, and fills the slot up again
+     * @param startIndex First tile the player clicked on
+     * @return The seed, or null if none is ready yet
+     */
+    public Long poll(BoardSize size, int startIndex){
+        Key key = new Key(size, startIndex);
+        Long seed = slot(key).seeds.poll();
+        refill(key);
+        return seed;
+    }
+
+    /**
+     * Hands out the seed of a board that needs no guessing, waiting for one if none is ready. The search for it is
+     * put in front of the slots waiting to be filled, so it starts as soon as a worker is free. Must not be called
+     * on the FX thread.
+     * @param startIndex First tile the player clicked on
+     * @throws InterruptedException if the thread is interrupted while waiting, the search is then dropped
+     */
+    public long take(BoardSize size, int startIndex) throws InterruptedException {
+        Key key = new Key(size, startIndex);
+        Slot slot = slot(key);
+        Long seed = slot.seeds.poll();
+        if(seed == null){
+            CompletableFuture<Long> found = new CompletableFuture<>();
+            waiting.offerFirst(() -> {
+                if(found.isDone()) return;
+                // A fill of the slot may have finished since
+                Long ready = slot.seeds.poll();
+                try{
+                    found.complete(ready != null ? ready : findSeed(size, startIndex, new Board(size.getRowsAmount(),
+                            size.getColumnsAmount()), new Solver(false), minThreeBV, maxThreeBV));
+                }catch(RuntimeException e){
+                    found.completeExceptionally(e);
+                }
+            });
+            try{
+                seed = found.get();
+            }catch(ExecutionException e){
+                throw (RuntimeException) e.getCause();
+            }finally{
+                found.cancel(false);
+            }
+        }
+        refill(key);
+        return seed;
+    }
+
+    /**
+     * Makes boards from random seeds until one can be solved without guessing
+     * @param board  Board of the right size to use while looking, it is cleared first
+     * @param solver Solver that does not guess
+     */
+    public static long findSeed(BoardSize size, int startIndex, Board board, Solver solver){
+        return findSeed(size, startIndex, board, solver, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Makes boards from random seeds until one has a 3BV in the range and can be solved without guessing
+     * @throws IllegalArgumentException if {@link BoardGenerator#MAX_TRIES} boards in a row were outside the range
+     */
+    public static long findSeed(BoardSize size, int startIndex, Board board, Solver solver, int minThreeBV,
+                                int maxThreeBV){
+        int outsideRange = 0;
+        while(true){
+            long seed = ThreadLocalRandom.current().nextLong();
+            board.clear();
+            BoardGenerator.placeBombs(board, size.getBombsAmount(), seed, startIndex);
+            if(!BoardGenerator.isInRange(board, minThreeBV, maxThreeBV)){
+                if(++outsideRange == BoardGenerator.MAX_TRIES){
+                    throw new IllegalArgumentException("No " + size + " board with a 3BV between " + minThreeBV
+                            + " and " + maxThreeBV);
+                }
+                continue;
+            }
+            outsideRange = 0;
+            if(solver.play(board, startIndex)) return seed;
+        }
+    }
+
+    private Slot slot(Key key){
+        return slots.computeIfAbsent(key, k -> new Slot(capacity));
+    }
+
+    /**
+     * Fills the slot up on a background thread, unless that is already happening
+     */
+    private void refill(Key key){
+        Slot slot = slot(key);
+        if(slot.seeds.remainingCapacity() == 0 || !slot.filling.compareAndSet(false, true)) return;
+
+        workers.execute(() -> {
+            BoardSize size = key.size;
+            Board board = new Board(size.getRowsAmount(), size.getColumnsAmount());
+            Solver solver = new Solver(false);
+            // A take between the last offer and clearing filling could not start another fill, so the slot is
+            // looked at again once filling is cleared
+            do{
+                try{
+                    while(slot.seeds.remainingCapacity() > 0){
+                        slot.seeds.offer(findSeed(size, key.startIndex, board, solver, minThreeBV, maxThreeBV));
+                    }
+                }finally{
+                    slot.filling.set(false);
+                }
+            }while(slot.seeds.remainingCapacity() > 0 && slot.filling.compareAndSet(false, true));
+        });
+    }
+
+    private static final class Slot {
+        private final ArrayBlockingQueue<Long> seeds;
+        private final AtomicBoolean filling = new AtomicBoolean(false);
+
+        Slot(int capacity){
+            seeds = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+
+    private static final class Key {
+        private final BoardSize size;
+        private final int startIndex;
+
+        Key(BoardSize size, int startIndex){
+            this.size = size;
+            this.startIndex = startIndex;
+        }
+
+        @Override
+        public boolean equals(Object other){
+            if(this == other) return true;
+            if(!(other instanceof Key)) return false;
+            Key key = (Key) other;
+            return startIndex == key.startIndex && size.equals(key.size);
+        }
+
+        @Override
+        public int hashCode(){
+            return Objects.hash(size, startIndex);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package src.main.java;
+
+import java.util.Objects;
+
+/**
+ * The amount of rows, columns and bombs of a game. Either one of the {@link Difficulty} values or a custom size
+ * picked by the player.
+ */
+public final class BoardSize {
+    // Largest custom board is 10000 by 10000 tiles
+    public static final int MAX_SIDE = 10_000;
+
+    private final int rowsAmount;
+    private final int columnsAmount;
+    private final int bombsAmount;
+    private final Difficulty difficulty;  // null when custom
+
+    private BoardSize(int rowsAmount, int columnsAmount, int bombsAmount, Difficulty difficulty){
+        this.rowsAmount = rowsAmount;
+        this.columnsAmount = columnsAmount;
+        this.bombsAmount = bombsAmount;
+        this.difficulty = difficulty;
+    }
+
+    public static BoardSize of(Difficulty difficulty){
+        return new BoardSize(difficulty.getRowsAmount(), difficulty.getColumnsAmount(),
+                difficulty.getBombsAmount(), difficulty);
+    }
+
+    /**
+     * The first click always leaves at least its own tile free. How many bombs fit around it depends on where it is,
+     * so {@link BoardGenerator#maxBombs(Board, int)} checks that once the tile is known.
+     * @throws IllegalArgumentException if the board does not fit or has more bombs than tiles to put them on
+     */
+    public static BoardSize custom(int rowsAmount, int columnsAmount, int bombsAmount){
+        if(rowsAmount < 1 || columnsAmount < 1 || rowsAmount > MAX_SIDE || columnsAmount > MAX_SIDE){
+            throw new IllegalArgumentException("Rows and columns must be between 1 and " + MAX_SIDE);
+        }
+        long maxBombs = (long) rowsAmount * columnsAmount - 1;
+        if(bombsAmount < 0 || bombsAmount > maxBombs){
+            throw new IllegalArgumentException("Bombs must be between 0 and " + maxBombs);
+        }
+        return new BoardSize(rowsAmount, columnsAmount, bombsAmount, null);
+    }
+
+    public int getRowsAmount(){
+        return rowsAmount;
+    }
+
+    public int getColumnsAmount(){
+        return columnsAmount;
+    }
+
+    public int getBombsAmount(){
+        return bombsAmount;
+    }
+
+    public int getTilesAmount(){
+        return rowsAmount * columnsAmount;
+    }
+
+    /**
+     * @return The difficulty, or null for a custom board
+     */
+    public Difficulty getDifficulty(){
+        return difficulty;
+    }
+
+    public boolean isCustom(){
+        return difficulty == null;
+    }
+
+    @Override
+    public boolean equals(Object other){
+        if(this == other) return true;
+        if(!(other instanceof BoardSize)) return false;
+        BoardSize size = (BoardSize) other;
+        return rowsAmount == size.rowsAmount && columnsAmount == size.columnsAmount
+                && bombsAmount == size.bombsAmount && difficulty == size.difficulty;
+    }
+
+    @Override
+    public int hashCode(){
+        return Objects.hash(rowsAmount, columnsAmount, bombsAmount, difficulty);
+    }
+
+    @Override
+    public String toString(){
+        if(difficulty != null) return difficulty.toString();
+        return "Custom " + columnsAmount + "x" + rowsAmount;
+    }
+}
@@ -0,0 +1,280 @@
+package src.main.java;
+
+import javafx.animation.AnimationTimer;
+import javafx.geometry.VPos;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.image.Image;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * Draws a {@link Board} onto a single Canvas. The view is as large as the whole board so the ScrollPane holding it
+ * can scroll, but the canvas only covers the part of the board that can be seen and is moved along when the
+ * player scrolls. Clicks are turned into tile indexes here, so no node is made for each tile.
+ *
+ * Moves are recorded by the board into the view's {@link ChangeBatch} ({@link #getChanges()}). After a move
+ * {@link #changed()} draws every tile in the batch in the next frame, however many moves or tiles it holds.
+ * Each {@link TileState} is drawn once into an image that every tile with that state shares.
+ *
+ * A {@link ProbabilityMap} can be laid over the covered tiles, from green for safe to red for a sure bomb.
+ */
+public class BoardView extends Pane {
+    private static final Color BACKGROUND = Color.web("f4f4f4");
+    private static final Color COVER = Color.web("d9d9d9", 1);
+    private static final Color EXPLODED = Color.web("ff4");
+    private static final Color[] NUMBER_COLORS = {
+            Color.BLACK, Color.BLUE, Color.GREEN, Color.RED, Color.DARKBLUE,
+            Color.DARKRED, Color.TURQUOISE, Color.BLACK, Color.GRAY
+    };
+    private static final Color[] HEAT = new Color[33];
+
+    static{
+        for(int i = 0; i < HEAT.length; i++){
+            double chance = (double) i / (HEAT.length - 1);
+            HEAT[i] = Color.hsb(120 * (1 - chance), 0.9, 0.9, 0.55);
+        }
+    }
+
+    // One image for each TileState, made on the first view
+    private static Image[] glyphs;
+
+    private final Board board;
+    private final ScrollPane holder;
+    private final Canvas canvas = new Canvas();
+    private final double tileSide = Measurements.tileSide.value();
+
+    // Part of the board the canvas covers, in pixels of the whole board
+    private double originX;
+    private double originY;
+
+    private final ChangeBatch changes = new ChangeBatch();
+    private ProbabilityMap heatmap;
+    private final AnimationTimer painter = new AnimationTimer(){
+        @Override
+        public void handle(long now){
+            paintChanges();
+        }
+    };
+    private TileClickHandler onTileClicked;
+    private Runnable onPainted;
+    private Minimap minimap;
+
+    public interface TileClickHandler {
+        void clicked(int index, MouseEvent event);
+    }
+
+    /**
+     * @param board  Board to draw, its moves are recorded into this view
+     * @param holder ScrollPane the view will be put in, used to find which part of the board can be seen
+     */
+    public BoardView(Board board, ScrollPane holder){
+        this.board = board;
+        this.holder = holder;
+        glyphs();
+        board.setChanges(changes);
+
+        double width = board.getColumnsAmount() * tileSide;
+        double height = board.getRowsAmount() * tileSide;
+        setPrefSize(width, height);
+        setMinSize(width, height);
+        setMaxSize(width, height);
+        getChildren().add(canvas);
+
+        canvas.setOnMouseClicked(this::clickedOn);
+        holder.hvalueProperty().addListener(observable -> updateViewport());
+        holder.vvalueProperty().addListener(observable -> updateViewport());
+        holder.viewportBoundsProperty().addListener(observable -> updateViewport());
+    }
+
+    public void setOnTileClicked(TileClickHandler handler){
+        onTileClicked = handler;
+    }
+
+    /**
+     * @param handler Called after the recorded changes were drawn
+     */
+    public void setOnPainted(Runnable handler){
+        onPainted = handler;
+    }
+
+    /**
+     * @param minimap Given every batch before it is drawn
+     */
+    public void setMinimap(Minimap minimap){
+        this.minimap = minimap;
+    }
+
+    /**
+     * @return Batch the board records its moves into
+     */
+    public ChangeBatch getChanges(){
+        return changes;
+    }
+
+    /**
+     * Lays the chances over the covered tiles, or takes them away when null
+     */
+    public void setHeatmap(ProbabilityMap heatmap){
+        this.heatmap = heatmap;
+        repaintAll();
+    }
+
+    /**
+     * Draws the recorded changes in the next frame
+     */
+    public void changed(){
+        if(!changes.isEmpty()){
+            painter.start();
+        }
+    }
+
+    /**
+     * Draws every tile that can be seen, for moves made while nothing was recorded
+     */
+    public void repaint(){
+        changes.clear();
+        repaintAll();
+        if(onPainted != null) onPainted.run();
+    }
+
+    private void paintChanges(){
+        painter.stop();
+        if(minimap != null) minimap.update(changes);
+        GraphicsContext graphics = canvas.getGraphicsContext2D();
+        int visibleTiles = (int) (Math.ceil(canvas.getWidth() / tileSide + 1)
+                * Math.ceil(canvas.getHeight() / tileSide + 1));
+        if(changes.size() > visibleTiles){
+            // Large openings are cheaper to draw from the board than tile by tile
+            repaintAll();
+        }else{
+            for(int i = 0; i < changes.size(); i++){
+                drawTile(graphics, changes.getIndex(i), changes.getState(i));
+            }
+        }
+        changes.clear();
+        if(onPainted != null) onPainted.run();
+    }
+
+    /**
+     * Moves and resizes the canvas to the part of the board that can be seen and draws every tile on it
+     */
+    private void updateViewport(){
+        double viewportWidth = holder.getViewportBounds().getWidth();
+        double viewportHeight = holder.getViewportBounds().getHeight();
+        double boardWidth = getPrefWidth();
+        double boardHeight = getPrefHeight();
+
+        double canvasWidth = Math.min(viewportWidth, boardWidth);
+        double canvasHeight = Math.min(viewportHeight, boardHeight);
+        originX = Math.max(0, boardWidth - viewportWidth) * scrollFraction(holder.getHvalue(),
+                holder.getHmin(), holder.getHmax());
+        originY = Math.max(0, boardHeight - viewportHeight) * scrollFraction(holder.getVvalue(),
+                holder.getVmin(), holder.getVmax());
+
+        canvas.setWidth(canvasWidth);
+        canvas.setHeight(canvasHeight);
+        canvas.relocate(originX, originY);
+        repaintAll();
+    }
+
+    private static double scrollFraction(double value, double min, double max){
+        if(max <= min) return 0;
+        return (value - min) / (max - min);
+    }
+
+    private void repaintAll(){
+        GraphicsContext graphics = canvas.getGraphicsContext2D();
+        if(canvas.getWidth() <= 0 || canvas.getHeight() <= 0) return;
+
+        int firstColumn = (int) (originX / tileSide);
+        int firstRow = (int) (originY / tileSide);
+        int lastColumn = Math.min(board.getColumnsAmount() - 1, (int) ((originX + canvas.getWidth()) / tileSide));
+        int lastRow = Math.min(board.getRowsAmount() - 1, (int) ((originY + canvas.getHeight()) / tileSide));
+
+        for(int y = firstRow; y <= lastRow; y++){
+            for(int x = firstColumn; x <= lastColumn; x++){
+                int index = board.index(x, y);
+                drawTile(graphics, index, board.getState(index));
+            }
+        }
+    }
+
+    private void drawTile(GraphicsContext graphics, int index, byte state){
+        double pixelX = board.getX(index) * tileSide - originX;
+        double pixelY = board.getY(index) * tileSide - originY;
+        if(pixelX + tileSide <= 0 || pixelY + tileSide <= 0
+                || pixelX >= canvas.getWidth() || pixelY >= canvas.getHeight()){
+            return;
+        }
+        graphics.drawImage(glyphs[state], pixelX, pixelY);
+        if(heatmap != null && state == TileState.COVERED){
+            float chance = heatmap.get(index);
+            graphics.setFill(HEAT[Math.round(chance * (HEAT.length - 1))]);
+            graphics.fillRect(pixelX + 1, pixelY + 1, tileSide - 2, tileSide - 2);
+        }
+    }
+
+    /**
+     * @return One image for each {@link TileState}, shared by every view
+     */
+    static Image[] glyphs(){
+        if(glyphs == null){
+            glyphs = createGlyphs(Measurements.tileSide.value());
+        }
+        return glyphs;
+    }
+
+    /**
+     * Draws every state the same way the old StackPane tiles looked: a gray cover one pixel smaller than the tile,
+     * a "!" on marked tiles, a colored number on shown tiles and a red square on bombs once the player lost.
+     */
+    private static Image[] createGlyphs(double tileSide){
+        Image[] images = new Image[TileState.AMOUNT];
+        Canvas canvas = new Canvas(tileSide, tileSide);
+        GraphicsContext graphics = canvas.getGraphicsContext2D();
+        graphics.setTextAlign(TextAlignment.CENTER);
+        graphics.setTextBaseline(VPos.CENTER);
+        double inner = tileSide - 2;
+        double center = tileSide / 2;
+
+        for(byte state = 0; state < TileState.AMOUNT; state++){
+            graphics.setFill(state == TileState.EXPLODED ? EXPLODED : BACKGROUND);
+            graphics.fillRect(0, 0, tileSide, tileSide);
+
+            if(TileState.isNumber(state)){
+                if(state != 0){
+                    graphics.setFill(NUMBER_COLORS[state]);
+                    graphics.fillText(String.valueOf(state), center, center);
+                }
+            }else if(state == TileState.BOMB || state == TileState.EXPLODED){
+                graphics.setFill(Color.RED);
+                graphics.fillRect(1, 1, inner, inner);
+            }else{
+                graphics.setFill(COVER);
+                graphics.fillRect(1, 1, inner, inner);
+                if(state == TileState.MARKED){
+                    graphics.setFill(Color.RED);
+                    graphics.fillText("!", center, center);
+                }
+            }
+            images[state] = canvas.snapshot(new SnapshotParameters(), null);
+        }
+        return images;
+    }
+
+    /**
+     * Finds the tile under the mouse and hands it to the click handler
+     */
+    private void clickedOn(MouseEvent event){
+        if(onTileClicked == null) return;
+        int x = (int) ((originX + event.getX()) / tileSide);
+        int y = (int) ((originY + event.getY()) / tileSide);
+        if(x < 0 || y < 0 || x >= board.getColumnsAmount() || y >= board.getRowsAmount()) return;
+        onTileClicked.clicked(board.index(x, y), event);
+    }
+}
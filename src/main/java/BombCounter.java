@@ -0,0 +1,179 @@
+package src.main.java;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Works out the amount of bombs nearby every tile straight from the bombs bitset of a {@link Board}, 64 tiles at
+ * a time.
+ *
+ * Each row is copied out of the bitset so it starts at bit 0 of a long. The eight neighbours of the 64 tiles in a
+ * long are the rows above, at and below, shifted one tile left and right. These eight longs are added with
+ * bit-sliced adders into four longs, where bit x of long i is bit i of the amount for tile x. The amounts are
+ * then spread into bytes eight tiles at a time with a lookup table.
+ *
+ * Boards with more than {@link #PARALLEL_TILES} tiles are split into strips of rows counted on the common
+ * ForkJoinPool. Strips write to different parts of the amounts, so they do not share anything.
+ */
+public class BombCounter {
+    private static final int PARALLEL_TILES = 1 << 18;
+    private static final VarHandle LONGS_IN_BYTES =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    // SPREAD[b] has bit i of b in the lowest bit of byte i
+    private static final long[] SPREAD = new long[256];
+
+    static{
+        for(int b = 0; b < 256; b++){
+            long spread = 0;
+            for(int i = 0; i < 8; i++){
+                spread |= (long) (b >>> i & 1) << (i << 3);
+            }
+            SPREAD[b] = spread;
+        }
+    }
+
+    private BombCounter(){}
+
+    /**
+     * @param bombs   Bitset with one bit for each tile, index = y * columnsAmount + x
+     * @param into    Amount of bombs nearby each tile, every byte is written
+     */
+    public static void count(long[] bombs, int rowsAmount, int columnsAmount, byte[] into){
+        long tiles = (long) rowsAmount * columnsAmount;
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if(tiles < PARALLEL_TILES || parallelism < 2){
+            countRows(bombs, rowsAmount, columnsAmount, 0, rowsAmount, into);
+            return;
+        }
+
+        // A few strips for each worker so one slow strip does not hold up the rest
+        int strips = Math.min(rowsAmount, parallelism * 4);
+        IntStream.range(0, strips).parallel().forEach(strip -> {
+            int from = (int) ((long) rowsAmount * strip / strips);
+            int to = (int) ((long) rowsAmount * (strip + 1) / strips);
+            countRows(bombs, rowsAmount, columnsAmount, from, to, into);
+        });
+    }
+
+    private static void countRows(long[] bombs, int rowsAmount, int columnsAmount, int fromRow, int toRow,
+                                  byte[] into){
+        int rowWords = (columnsAmount + 63) >>> 6;
+        long[] above = new long[rowWords];
+        long[] row = new long[rowWords];
+        long[] below = new long[rowWords];
+        if(fromRow > 0) copyRow(bombs, fromRow - 1, columnsAmount, above);
+        copyRow(bombs, fromRow, columnsAmount, row);
+
+        for(int y = fromRow; y < toRow; y++){
+            if(y + 1 < rowsAmount){
+                copyRow(bombs, y + 1, columnsAmount, below);
+            }else{
+                Arrays.fill(below, 0);
+            }
+
+            int rowStart = y * columnsAmount;
+            for(int w = 0; w < rowWords; w++){
+                long upLeft = shiftLeft(above, w);
+                long up = above[w];
+                long upRight = shiftRight(above, w);
+                long left = shiftLeft(row, w);
+                long right = shiftRight(row, w);
+                long downLeft = shiftLeft(below, w);
+                long down = below[w];
+                long downRight = shiftRight(below, w);
+
+                // Two full adders and a half adder bring the eight ones down to three ones and three twos
+                long aXor = upLeft ^ up;
+                long aOnes = aXor ^ upRight;
+                long aTwos = (upLeft & up) | (upRight & aXor);
+                long bXor = left ^ right;
+                long bOnes = bXor ^ downLeft;
+                long bTwos = (left & right) | (downLeft & bXor);
+                long cOnes = down ^ downRight;
+                long cTwos = down & downRight;
+
+                // A third full adder adds the three ones into bit 0 and a fourth two
+                long dXor = aOnes ^ bOnes;
+                long bit0 = dXor ^ cOnes;
+                long dTwos = (aOnes & bOnes) | (cOnes & dXor);
+
+                // Four twos: a full adder then a half adder, their carries are fours
+                long eXor = aTwos ^ bTwos;
+                long eTwos = eXor ^ cTwos;
+                long eFours = (aTwos & bTwos) | (cTwos & eXor);
+                long bit1 = eTwos ^ dTwos;
+                long fFours = eTwos & dTwos;
+                long bit2 = eFours ^ fFours;
+                long bit3 = eFours & fFours;
+
+                int x = w << 6;
+                int cells = Math.min(64, columnsAmount - x);
+                write(into, rowStart + x, cells, bit0, bit1, bit2, bit3);
+            }
+
+            long[] reused = above;
+            above = row;
+            row = below;
+            below = reused;
+        }
+    }
+
+    /**
+     * Writes the amounts of up to 64 tiles, eight at a time while there are eight left
+     */
+    private static void write(byte[] into, int start, int cells, long bit0, long bit1, long bit2, long bit3){
+        int i = 0;
+        for(; i + 8 <= cells; i += 8){
+            long amounts = SPREAD[(int) (bit0 >>> i) & 0xFF]
+                    | SPREAD[(int) (bit1 >>> i) & 0xFF] << 1
+                    | SPREAD[(int) (bit2 >>> i) & 0xFF] << 2
+                    | SPREAD[(int) (bit3 >>> i) & 0xFF] << 3;
+            LONGS_IN_BYTES.set(into, start + i, amounts);
+        }
+        for(; i < cells; i++){
+            into[start + i] = (byte) ((bit0 >>> i & 1) | (bit1 >>> i & 1) << 1
+                    | (bit2 >>> i & 1) << 2 | (bit3 >>> i & 1) << 3);
+        }
+    }
+
+    /**
+     * @return Word w of the row moved so bit x holds tile x - 1
+     */
+    private static long shiftLeft(long[] row, int w){
+        long bits = row[w] << 1;
+        return w > 0 ? bits | row[w - 1] >>> 63 : bits;
+    }
+
+    /**
+     * @return Word w of the row moved so bit x holds tile x + 1
+     */
+    private static long shiftRight(long[] row, int w){
+        long bits = row[w] >>> 1;
+        return w + 1 < row.length ? bits | row[w + 1] << 63 : bits;
+    }
+
+    /**
+     * Copies row y out of the bitset so tile x of the row is bit x, bits after the last column are cleared
+     */
+    private static void copyRow(long[] bits, int y, int columnsAmount, long[] into){
+        long start = (long) y * columnsAmount;
+        for(int w = 0; w < into.length; w++){
+            long position = start + ((long) w << 6);
+            int word = (int) (position >>> 6);
+            int shift = (int) (position & 63);
+            long value = bits[word] >>> shift;
+            if(shift != 0 && word + 1 < bits.length){
+                value |= bits[word + 1] << (64 - shift);
+            }
+            into[w] = value;
+        }
+        int lastBits = columnsAmount & 63;
+        if(lastBits != 0){
+            into[into.length - 1] &= (1L << lastBits) - 1;
+        }
+    }
+}
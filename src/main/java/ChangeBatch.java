@@ -0,0 +1,53 @@
+package src.main.java;
+
+import java.util.Arrays;
+
+/**
+ * The tiles one or more moves changed and their new {@link TileState}, kept in two growing arrays so recording a
+ * change does not make an object. A {@link Board} adds to it while it is set with {@link Board#setChanges}, the
+ * view draws the tiles and then clears it.
+ */
+public class ChangeBatch {
+    private static final int DEFAULT_CAPACITY = 64;
+    // Arrays grown past this by one large move are let go when cleared, smaller ones are kept for the next move
+    private static final int KEPT_CAPACITY = 16 * DEFAULT_CAPACITY;
+
+    private int[] indexes = new int[DEFAULT_CAPACITY];
+    private byte[] states = new byte[DEFAULT_CAPACITY];
+    private int size;
+
+    public void add(int index, byte state){
+        if(size == indexes.length){
+            int capacity = Math.max(indexes.length * 2, DEFAULT_CAPACITY);
+            indexes = Arrays.copyOf(indexes, capacity);
+            states = Arrays.copyOf(states, capacity);
+        }
+        indexes[size] = index;
+        states[size] = state;
+        size++;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    public int getIndex(int i){
+        return indexes[i];
+    }
+
+    public byte getState(int i){
+        return states[i];
+    }
+
+    public void clear(){
+        size = 0;
+        if(indexes.length > KEPT_CAPACITY){
+            indexes = new int[DEFAULT_CAPACITY];
+            states = new byte[DEFAULT_CAPACITY];
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package src.main.java;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * File the chunks of an {@link EndlessBoard} are moved to when they leave its cache. Only what the player did is
+ * kept, since the bombs come back from the seed: one 1032 byte record for each chunk,
+ *   chunk x, chunk y, 64 longs of shown tiles, 64 longs of marked tiles
+ * A chunk written again goes over its old record, so the file only grows with chunks that were never written.
+ *
+ * Where each chunk's record is goes in an open addressing table of longs and ints, 12 to 24 bytes for every 4096
+ * tiles the player changed. Every record stays in use for as long as the board is played, so neither the file nor
+ * the table is ever compacted: they grow with the area the player has changed, about 1 KB on disk and 24 bytes in
+ * memory for each chunk, up to {@link #MAX_CHUNKS} chunks. The file is removed when the store is closed.
+ */
+public class ChunkStore implements AutoCloseable {
+    public static final String FILE_NAME = "endless.chunks";
+    // The table can grow to 2^30 slots and is kept at most half full. That is over 500 GB of chunks.
+    public static final int MAX_CHUNKS = 1 << 29;
+    private static final int SIDE = EndlessBoard.CHUNK_SIDE;
+    private static final int RECORD_BYTES = 8 + 2 * SIDE * Long.BYTES;
+    private static final int EMPTY = -1;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES);
+    private long[] keys = new long[64];
+    private int[] records = new int[64];
+    private int recordsAmount;
+
+    private ChunkStore(FileChannel channel){
+        this.channel = channel;
+        Arrays.fill(records, EMPTY);
+    }
+
+    /**
+     * Starts an empty store, anything left in the file from before is thrown away
+     */
+    public static ChunkStore open(Path file) throws IOException {
+        return new ChunkStore(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DELETE_ON_CLOSE));
+    }
+
+    public static ChunkStore openDefault() throws IOException {
+        return open(DataDirectory.resolve(FILE_NAME));
+    }
+
+    /**
+     * @return Amount of chunks in the file
+     */
+    public int getChunksAmount(){
+        return recordsAmount;
+    }
+
+    /**
+     * @throws IOException if the chunk is new and the store already has {@link #MAX_CHUNKS} chunks
+     */
+    public void write(int chunkX, int chunkY, long[] shown, long[] marked) throws IOException {
+        long key = EndlessBoard.key(chunkX, chunkY);
+        int slot = slot(key);
+        if(records[slot] == EMPTY){
+            if(recordsAmount == MAX_CHUNKS){
+                throw new IOException("The endless board cannot keep more than " + MAX_CHUNKS + " chunks");
+            }
+            keys[slot] = key;
+            records[slot] = recordsAmount++;
+            if(recordsAmount * 2 > keys.length){
+                grow();
+                slot = slot(key);
+            }
+        }
+
+        buffer.clear();
+        buffer.putInt(chunkX).putInt(chunkY);
+        for(long row : shown){
+            buffer.putLong(row);
+        }
+        for(long row : marked){
+            buffer.putLong(row);
+        }
+        buffer.flip();
+        long position = (long) records[slot] * RECORD_BYTES;
+        while(buffer.hasRemaining()){
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Fills shown and marked with the chunk's record
+     * @return false if the chunk was never written, the arrays are left as they were
+     */
+    public boolean read(int chunkX, int chunkY, long[] shown, long[] marked) throws IOException {
+        int record = records[slot(EndlessBoard.key(chunkX, chunkY))];
+        if(record == EMPTY) return false;
+
+        buffer.clear();
+        long position = (long) record * RECORD_BYTES;
+        while(buffer.hasRemaining()){
+            int read = channel.read(buffer, position);
+            if(read < 0) throw new IOException("Chunk " + chunkX + "," + chunkY + " is cut short");
+            position += read;
+        }
+        buffer.flip();
+        if(buffer.getInt() != chunkX || buffer.getInt() != chunkY){
+            throw new IOException("Chunk " + chunkX + "," + chunkY + " has another chunk's record");
+        }
+        for(int i = 0; i < SIDE; i++){
+            shown[i] = buffer.getLong();
+        }
+        for(int i = 0; i < SIDE; i++){
+            marked[i] = buffer.getLong();
+        }
+        return true;
+    }
+
+    /**
+     * @return Slot of the key, or the empty slot it would go in
+     */
+    private int slot(long key){
+        int mask = keys.length - 1;
+        // The top bits of the product are the best mixed, as many of them are taken as the table has slot bits
+        int slot = (int) (key * 0x9E3779B97F4A7C15L >>> (Long.SIZE - Integer.numberOfTrailingZeros(keys.length)));
+        while(records[slot] != EMPTY && keys[slot] != key){
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow(){
+        long[] oldKeys = keys;
+        int[] oldRecords = records;
+        keys = new long[oldKeys.length * 2];
+        records = new int[oldRecords.length * 2];
+        Arrays.fill(records, EMPTY);
+        for(int i = 0; i < oldKeys.length; i++){
+            if(oldRecords[i] == EMPTY) continue;
+            int slot = slot(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            records[slot] = oldRecords[i];
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
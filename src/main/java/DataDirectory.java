@@ -0,0 +1,26 @@
+package src.main.java;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Folder the game keeps its files in, ~/.minesweeper unless the minesweeper.home property names another one.
+ */
+public final class DataDirectory {
+
+    private DataDirectory(){
+    }
+
+    public static Path get() throws IOException {
+        String home = System.getProperty("minesweeper.home");
+        Path directory = home != null ? Paths.get(home)
+                : Paths.get(System.getProperty("user.home"), ".minesweeper");
+        return Files.createDirectories(directory);
+    }
+
+    public static Path resolve(String fileName) throws IOException {
+        return get().resolve(fileName);
+    }
+}
@@ -0,0 +1,386 @@
+package src.main.java;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * A board without edges for the endless mode. Tiles are found by x and y, which can be negative, and are kept in
+ * chunks of {@link #CHUNK_SIDE} by {@link #CHUNK_SIDE} tiles, one long for each row of a chunk.
+ *
+ * The bombs of a chunk come from the seed of the board and where the chunk is, so they are made again whenever
+ * they are needed and never saved. Bombs are placed with the density of expert, except around the first tile
+ * opened. The amount of bombs nearby each tile of a chunk is counted with {@link BombCounter} over the chunk and
+ * the edges of the eight chunks around it.
+ *
+ * Only the last {@link #CACHED_CHUNKS} chunks used are kept in memory. The chunk used longest ago is moved out to
+ * a {@link ChunkStore} when another is needed, if the player changed it, and read back the next time it is used.
+ * Moves look up the chunk again for every tile, so an opening can run across any amount of chunks.
+ */
+public class EndlessBoard implements AutoCloseable {
+    public static final int CHUNK_SIDE = 64;
+    public static final int CACHED_CHUNKS = 256;
+    private static final int SHIFT = 6;
+    private static final int MASK = CHUNK_SIDE - 1;
+    private static final double BOMB_DENSITY = (double) Difficulty.EXPERT.getBombsAmount()
+            / (Difficulty.EXPERT.getRowsAmount() * Difficulty.EXPERT.getColumnsAmount());
+
+    private final long seed;
+    private final ChunkStore store;
+    private final Map<Long, Chunk> chunks;
+
+    private boolean started = false;
+    private int startX;
+    private int startY;
+    private boolean lost = false;
+    private long shownAmount;
+
+    // Tiles still to be looked at by open, as x in the high half and y in the low half
+    private long[] revealQueue = new long[256];
+
+    private static final class Chunk {
+        private final int chunkX;
+        private final int chunkY;
+        private final long[] shown = new long[CHUNK_SIDE];
+        private final long[] marked = new long[CHUNK_SIDE];
+        // Made the first time they are needed once the first tile is opened
+        private long[] bombs;
+        private byte[] bombsNearby;
+        // The store does not have this chunk as it is
+        private boolean changed;
+
+        private Chunk(int chunkX, int chunkY){
+            this.chunkX = chunkX;
+            this.chunkY = chunkY;
+        }
+    }
+
+    public EndlessBoard(long seed, ChunkStore store){
+        this(seed, store, CACHED_CHUNKS);
+    }
+
+    /**
+     * @param cachedChunks Amount of chunks kept in memory, at least 9 so a tile and all its neighbours fit
+     */
+    public EndlessBoard(long seed, ChunkStore store, int cachedChunks){
+        if(cachedChunks < 9){
+            throw new IllegalArgumentException("At least 9 chunks must be kept in memory");
+        }
+        this.seed = seed;
+        this.store = store;
+        this.chunks = new LinkedHashMap<>(cachedChunks * 2, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest){
+                if(size() <= cachedChunks) return false;
+                evict(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    static long key(int chunkX, int chunkY){
+        return (long) chunkX << 32 | (chunkY & 0xFFFFFFFFL);
+    }
+
+    public long getSeed(){
+        return seed;
+    }
+
+    public boolean isStarted(){
+        return started;
+    }
+
+    public boolean isLost(){
+        return lost;
+    }
+
+    /**
+     * @return Amount of tiles without bombs the player has shown
+     */
+    public long getShownAmount(){
+        return shownAmount;
+    }
+
+    public int getCachedChunksAmount(){
+        return chunks.size();
+    }
+
+    public int getStoredChunksAmount(){
+        return store.getChunksAmount();
+    }
+
+    /**
+     * @return {@link TileState} of the tile as the player sees it
+     * @throws UncheckedIOException if the chunk could not be moved to or from the store
+     */
+    public byte getState(int x, int y){
+        Chunk chunk = chunk(x, y);
+        int localX = x & MASK;
+        int localY = y & MASK;
+        if(get(chunk.shown, localX, localY)){
+            countBombs(chunk);
+            if(get(chunk.bombs, localX, localY)) return TileState.EXPLODED;
+            return chunk.bombsNearby[localY * CHUNK_SIDE + localX];
+        }
+        if(get(chunk.marked, localX, localY)) return TileState.MARKED;
+        if(lost){
+            placeBombs(chunk);
+            if(get(chunk.bombs, localX, localY)) return TileState.BOMB;
+        }
+        return TileState.COVERED;
+    }
+
+    /**
+     * Shows the tile and, when it has no bombs nearby, the tiles around it the same way as {@link Board#open(int)}.
+     * The first tile opened has no bombs around it. Showing a bomb loses the game.
+     * @return Amount of tiles that were shown, 0 if the tile was shown or marked, or the game is lost
+     * @throws UncheckedIOException if a chunk could not be moved to or from the store
+     */
+    public int open(int x, int y){
+        if(lost) return 0;
+        if(!started){
+            started = true;
+            startX = x;
+            startY = y;
+        }
+        Chunk chunk = chunk(x, y);
+        int localX = x & MASK;
+        int localY = y & MASK;
+        if(get(chunk.shown, localX, localY) || get(chunk.marked, localX, localY)) return 0;
+        countBombs(chunk);
+        set(chunk.shown, localX, localY);
+        chunk.changed = true;
+        if(get(chunk.bombs, localX, localY)){
+            lost = true;
+            return 1;
+        }
+        shownAmount++;
+
+        long[] queue = revealQueue;
+        queue[0] = pack(x, y);
+        int head = 0;
+        int tail = 1;
+        int revealed = 1;
+        while(head < tail){
+            int tileX = (int) (queue[head] >> 32);
+            int tileY = (int) queue[head++];
+            chunk = chunk(tileX, tileY);
+            countBombs(chunk);
+            // Numbered tiles are the edge of the opening
+            if(chunk.bombsNearby[(tileY & MASK) * CHUNK_SIDE + (tileX & MASK)] != 0) continue;
+
+            for(int dy = -1; dy <= 1; dy++){
+                for(int dx = -1; dx <= 1; dx++){
+                    if(dx == 0 && dy == 0) continue;
+                    int adjacentX = tileX + dx;
+                    int adjacentY = tileY + dy;
+                    // Looked up again each time, the chunk could have been moved out by the one before
+                    Chunk adjacent = chunk(adjacentX, adjacentY);
+                    localX = adjacentX & MASK;
+                    localY = adjacentY & MASK;
+                    if(get(adjacent.shown, localX, localY) || get(adjacent.marked, localX, localY)) continue;
+                    set(adjacent.shown, localX, localY);
+                    adjacent.changed = true;
+                    shownAmount++;
+                    revealed++;
+                    if(tail == queue.length){
+                        queue = growQueue(queue, head, tail);
+                        tail -= head;
+                        head = 0;
+                    }
+                    queue[tail++] = pack(adjacentX, adjacentY);
+                }
+            }
+        }
+        revealQueue = queue;
+        return revealed;
+    }
+
+    /**
+     * Keeps the tiles still to be looked at and makes room for more
+     */
+    private static long[] growQueue(long[] queue, int head, int tail){
+        long[] grown = new long[Math.max(queue.length, (tail - head) * 2)];
+        System.arraycopy(queue, head, grown, 0, tail - head);
+        return grown;
+    }
+
+    public boolean isShown(int x, int y){
+        return get(chunk(x, y).shown, x & MASK, y & MASK);
+    }
+
+    /**
+     * Marks a tile the player thinks is a bomb. Shown tiles cannot be marked.
+     * @return true if the tile was not marked before
+     */
+    public boolean mark(int x, int y){
+        Chunk chunk = chunk(x, y);
+        int localX = x & MASK;
+        int localY = y & MASK;
+        if(lost || get(chunk.marked, localX, localY) || get(chunk.shown, localX, localY)) return false;
+        set(chunk.marked, localX, localY);
+        chunk.changed = true;
+        return true;
+    }
+
+    /**
+     * @return true if the tile was marked before
+     */
+    public boolean unmark(int x, int y){
+        Chunk chunk = chunk(x, y);
+        int localX = x & MASK;
+        int localY = y & MASK;
+        if(lost || !get(chunk.marked, localX, localY)) return false;
+        chunk.marked[localY] &= ~(1L << localX);
+        chunk.changed = true;
+        return true;
+    }
+
+    public boolean isMarked(int x, int y){
+        return get(chunk(x, y).marked, x & MASK, y & MASK);
+    }
+
+    /**
+     * @return Chunk holding the tile, read from the store or made empty when it is not in memory
+     */
+    private Chunk chunk(int x, int y){
+        int chunkX = x >> SHIFT;
+        int chunkY = y >> SHIFT;
+        long key = key(chunkX, chunkY);
+        Chunk chunk = chunks.get(key);
+        if(chunk != null) return chunk;
+
+        chunk = new Chunk(chunkX, chunkY);
+        try{
+            store.read(chunkX, chunkY, chunk.shown, chunk.marked);
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        chunks.put(key, chunk);
+        return chunk;
+    }
+
+    private void evict(Chunk chunk){
+        if(!chunk.changed) return;
+        try{
+            store.write(chunk.chunkX, chunk.chunkY, chunk.shown, chunk.marked);
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void placeBombs(Chunk chunk){
+        if(chunk.bombs == null){
+            chunk.bombs = createBombs(chunk.chunkX, chunk.chunkY);
+        }
+    }
+
+    /**
+     * Counts the bombs nearby every tile of the chunk, from a board of the chunk with one tile of the chunks
+     * around it on each side
+     */
+    private void countBombs(Chunk chunk){
+        if(chunk.bombsNearby != null) return;
+        placeBombs(chunk);
+        int side = CHUNK_SIDE + 2;
+        long[] around = new long[(side * side + 63) >>> 6];
+        for(int dy = -1; dy <= 1; dy++){
+            for(int dx = -1; dx <= 1; dx++){
+                long[] bombs = dx == 0 && dy == 0 ? chunk.bombs : bombsOf(chunk.chunkX + dx, chunk.chunkY + dy);
+                // Only the rows and columns next to the chunk are needed from the ones around it
+                int firstY = dy < 0 ? CHUNK_SIDE - 1 : 0;
+                int lastY = dy > 0 ? 0 : CHUNK_SIDE - 1;
+                for(int y = firstY; y <= lastY; y++){
+                    long row = bombs[y];
+                    if(dx < 0) row &= 1L << MASK;
+                    if(dx > 0) row &= 1L;
+                    int aroundY = y + 1 + dy * CHUNK_SIDE;
+                    while(row != 0){
+                        int x = Long.numberOfTrailingZeros(row);
+                        row &= row - 1;
+                        int index = aroundY * side + x + 1 + dx * CHUNK_SIDE;
+                        around[index >>> 6] |= 1L << index;
+                    }
+                }
+            }
+        }
+
+        byte[] counts = new byte[side * side];
+        BombCounter.count(around, side, side, counts);
+        byte[] bombsNearby = new byte[CHUNK_SIDE * CHUNK_SIDE];
+        for(int y = 0; y < CHUNK_SIDE; y++){
+            System.arraycopy(counts, (y + 1) * side + 1, bombsNearby, y * CHUNK_SIDE, CHUNK_SIDE);
+        }
+        chunk.bombsNearby = bombsNearby;
+    }
+
+    /**
+     * @return Bombs of a chunk, taken from memory when it is there. Looking a chunk up counts as using it, so the
+     *          chunks around one being counted move to the newest end of the cache, where they are wanted anyway
+     *          since the player is near them. A chunk that is not in memory is not read in for its bombs.
+     */
+    private long[] bombsOf(int chunkX, int chunkY){
+        Chunk chunk = chunks.get(key(chunkX, chunkY));
+        if(chunk != null && chunk.bombs != null) return chunk.bombs;
+        return createBombs(chunkX, chunkY);
+    }
+
+    /**
+     * @return One long for each row of the chunk, the same every time for the same seed, chunk and first tile
+     */
+    private long[] createBombs(int chunkX, int chunkY){
+        if(!started){
+            throw new IllegalStateException("Bombs are placed once the first tile is opened");
+        }
+        SplittableRandom random = new SplittableRandom(mix(seed ^ mix(key(chunkX, chunkY))));
+        long[] bombs = new long[CHUNK_SIDE];
+        for(int y = 0; y < CHUNK_SIDE; y++){
+            long row = 0;
+            for(int x = 0; x < CHUNK_SIDE; x++){
+                if(random.nextDouble() < BOMB_DENSITY) row |= 1L << x;
+            }
+            bombs[y] = row;
+        }
+
+        // The first tile opened and its neighbours never have bombs
+        for(int y = startY - 1; y <= startY + 1; y++){
+            for(int x = startX - 1; x <= startX + 1; x++){
+                if(x >> SHIFT == chunkX && y >> SHIFT == chunkY){
+                    bombs[y & MASK] &= ~(1L << (x & MASK));
+                }
+            }
+        }
+        return bombs;
+    }
+
+    /**
+     * Spreads the bits of a value over the whole long, so nearby chunks get unrelated seeds
+     */
+    private static long mix(long value){
+        value = (value ^ value >>> 33) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ value >>> 33) * 0xC4CEB9FE1A85EC53L;
+        return value ^ value >>> 33;
+    }
+
+    private static long pack(int x, int y){
+        return (long) x << 32 | (y & 0xFFFFFFFFL);
+    }
+
+    private static boolean get(long[] rows, int localX, int localY){
+        return (rows[localY] >>> localX & 1) != 0;
+    }
+
+    private static void set(long[] rows, int localX, int localY){
+        rows[localY] |= 1L << localX;
+    }
+
+    /**
+     * Closes the store, which removes its file
+     */
+    @Override
+    public void close() throws IOException {
+        store.close();
+    }
+}
@@ -0,0 +1,177 @@
+package src.main.java;
+
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.shape.Rectangle;
+
+/**
+ * Draws the part of an {@link EndlessBoard} that can be seen onto a Canvas as large as the view. Dragging the
+ * board or scrolling moves around it, a click that did not drag opens a tile, or marks it with the right mouse
+ * button. Tile 0, 0 starts in the middle of the view.
+ *
+ * The whole canvas is drawn again after every move, it never has more tiles than fit in the window.
+ *
+ * Moving around reads and writes chunks in the board's {@link ChunkStore}. If that fails, for example when the
+ * disk is full, the view stops taking moves and hands the error to the failure handler instead of throwing it
+ * out of the event handler.
+ */
+public class EndlessView extends Pane {
+    // Pixels the mouse has to move before a press is taken as a drag instead of a click
+    private static final double DRAG_PIXELS = 4;
+
+    private final EndlessBoard board;
+    private final Canvas canvas = new Canvas();
+    private final double tileSide = Measurements.tileSide.value();
+    private final Image[] glyphs = BoardView.glyphs();
+
+    // Pixel of the board at the top left of the canvas, the board's pixel 0 is the left edge of tile 0
+    private double originX;
+    private double originY;
+    private double pressX;
+    private double pressY;
+    private boolean dragged;
+    private MoveHandler onMoved;
+    private Consumer<UncheckedIOException> onFailed;
+    private boolean failed = false;
+
+    public interface MoveHandler {
+        /**
+         * @param revealed Tiles shown by the move, 0 when a tile was marked or unmarked
+         */
+        void moved(int revealed);
+    }
+
+    public EndlessView(EndlessBoard board){
+        this.board = board;
+        setPrefSize(Measurements.windowWidth.value(), Measurements.windowHeight.value());
+        originX = -Measurements.windowWidth.value() / 2;
+        originY = -Measurements.windowHeight.value() / 2;
+        getChildren().add(canvas);
+        Rectangle clip = new Rectangle();
+        clip.widthProperty().bind(widthProperty());
+        clip.heightProperty().bind(heightProperty());
+        setClip(clip);
+
+        widthProperty().addListener(observable -> resize());
+        heightProperty().addListener(observable -> resize());
+        canvas.setOnMousePressed(this::pressed);
+        canvas.setOnMouseDragged(this::dragged);
+        canvas.setOnMouseReleased(this::released);
+        canvas.setOnScroll(this::scrolled);
+    }
+
+    public EndlessBoard getBoard(){
+        return board;
+    }
+
+    public void setOnMoved(MoveHandler handler){
+        onMoved = handler;
+    }
+
+    /**
+     * @param handler Called once when the board's chunks could not be read or written, on the FX thread
+     */
+    public void setOnFailed(Consumer<UncheckedIOException> handler){
+        onFailed = handler;
+    }
+
+    public boolean hasFailed(){
+        return failed;
+    }
+
+    private void fail(UncheckedIOException e){
+        if(failed) return;
+        failed = true;
+        if(onFailed != null) onFailed.accept(e);
+    }
+
+    private void resize(){
+        canvas.setWidth(getWidth());
+        canvas.setHeight(getHeight());
+        repaint();
+    }
+
+    /**
+     * Draws every tile that can be seen
+     */
+    public void repaint(){
+        GraphicsContext graphics = canvas.getGraphicsContext2D();
+        if(failed || canvas.getWidth() <= 0 || canvas.getHeight() <= 0) return;
+
+        int firstColumn = (int) Math.floor(originX / tileSide);
+        int firstRow = (int) Math.floor(originY / tileSide);
+        int lastColumn = (int) Math.floor((originX + canvas.getWidth()) / tileSide);
+        int lastRow = (int) Math.floor((originY + canvas.getHeight()) / tileSide);
+        try{
+            for(int y = firstRow; y <= lastRow; y++){
+                for(int x = firstColumn; x <= lastColumn; x++){
+                    graphics.drawImage(glyphs[board.getState(x, y)], x * tileSide - originX,
+                            y * tileSide - originY);
+                }
+            }
+        }catch(UncheckedIOException e){
+            fail(e);
+        }
+    }
+
+    private void pressed(MouseEvent event){
+        pressX = event.getX();
+        pressY = event.getY();
+        dragged = false;
+    }
+
+    private void dragged(MouseEvent event){
+        double moveX = event.getX() - pressX;
+        double moveY = event.getY() - pressY;
+        if(!dragged && Math.abs(moveX) < DRAG_PIXELS && Math.abs(moveY) < DRAG_PIXELS) return;
+        dragged = true;
+        moveBy(moveX, moveY);
+        pressX = event.getX();
+        pressY = event.getY();
+    }
+
+    private void scrolled(ScrollEvent event){
+        moveBy(event.getDeltaX(), event.getDeltaY());
+    }
+
+    /**
+     * Moves the board along with the mouse
+     */
+    private void moveBy(double pixelsX, double pixelsY){
+        originX -= pixelsX;
+        originY -= pixelsY;
+        repaint();
+    }
+
+    /**
+     * Opens or marks the tile under the mouse, unless the board was dragged
+     */
+    private void released(MouseEvent event){
+        if(dragged || failed || board.isLost()) return;
+        int x = (int) Math.floor((originX + event.getX()) / tileSide);
+        int y = (int) Math.floor((originY + event.getY()) / tileSide);
+        int revealed = 0;
+        try{
+            if(event.getButton().equals(MouseButton.SECONDARY) || event.isShortcutDown()){
+                if(board.isShown(x, y)) return;
+                if(!board.unmark(x, y)) board.mark(x, y);
+            }else{
+                revealed = board.open(x, y);
+                if(revealed == 0) return;
+            }
+        }catch(UncheckedIOException e){
+            fail(e);
+            return;
+        }
+        repaint();
+        if(onMoved != null) onMoved.moved(revealed);
+    }
+}
@@ -0,0 +1,57 @@
+package src.main.java;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder events of the game, found under "Minesweeper" in JDK Mission Control. They cost next to nothing
+ * unless a recording is running, for example with -XX:StartFlightRecording=filename=game.jfr
+ */
+public final class FlightEvents {
+    private FlightEvents(){
+    }
+
+    @Name("minesweeper.Click")
+    @Label("Click")
+    @Category("Minesweeper")
+    @Description("From a click on the board until the frame that shows it")
+    public static final class Click extends Event {
+        @Label("Tile")
+        public int tile;
+
+        @Label("Tiles shown")
+        public int revealed;
+
+        @Label("Neighbour lookups")
+        public long neighbourLookups;
+    }
+
+    @Name("minesweeper.Generation")
+    @Label("Board generation")
+    @Category("Minesweeper")
+    @Description("Placing the bombs and counting the bombs nearby every tile")
+    public static final class Generation extends Event {
+        @Label("Rows")
+        public int rows;
+
+        @Label("Columns")
+        public int columns;
+
+        @Label("Bombs")
+        public int bombs;
+    }
+
+    @Name("minesweeper.Pulse")
+    @Label("FX pulse")
+    @Category("Minesweeper")
+    @Description("Animation and layout work of one JavaFX pulse, before the frame is rendered")
+    @Threshold("2 ms")
+    public static final class Pulse extends Event {
+        @Label("Scene graph nodes")
+        public int nodes;
+    }
+}
@@ -0,0 +1,65 @@
+package src.main.java;
+
+/**
+ * Measures how long a game has been played using System.nanoTime, which never jumps when the wall clock changes.
+ * Pausing keeps the time played so far and resuming continues from it. Nothing runs in the background, the time
+ * is worked out when it is asked for.
+ */
+public class GameClock {
+    private long elapsedNanos;  // Time played before the current run
+    private long runStartNanos;
+    private boolean running = false;
+
+    /**
+     * Starts or resumes the clock
+     */
+    public void start(){
+        if(running) return;
+        runStartNanos = System.nanoTime();
+        running = true;
+    }
+
+    /**
+     * Pauses or stops the clock, the time played so far is kept
+     */
+    public void pause(){
+        if(!running) return;
+        elapsedNanos += System.nanoTime() - runStartNanos;
+        running = false;
+    }
+
+    /**
+     * Stops the clock and sets the time back to zero
+     */
+    public void reset(){
+        running = false;
+        elapsedNanos = 0;
+    }
+
+    /**
+     * Sets the time played, used when a game is loaded. The clock is left stopped.
+     */
+    public void set(long elapsedMillis){
+        running = false;
+        elapsedNanos = elapsedMillis * 1_000_000;
+    }
+
+    public boolean isRunning(){
+        return running;
+    }
+
+    public long getElapsedNanos(){
+        return running ? elapsedNanos + System.nanoTime() - runStartNanos : elapsedNanos;
+    }
+
+    public long getElapsedMillis(){
+        return getElapsedNanos() / 1_000_000;
+    }
+
+    /**
+     * @return Seconds with three decimals, for example 12.345
+     */
+    public static String format(long millis){
+        return String.format("%d.%03d", millis / 1000, millis % 1000);
+    }
+}
@@ -0,0 +1,404 @@
+package src.main.java;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Plays many games at once over TCP without JavaFX, one game for each connection. Commands and answers are lines
+ * of text, so the server can be tried with telnet or nc:
+ *   NEW rows columns bombs [seed]  starts a game                    GAME rows columns bombs
+ *   OPEN x y                       shows a tile                     SHOWN state amount x,y=n ...
+ *   MARK x y / UNMARK x y          marks or unmarks a tile          MARKED state / UNMARKED state
+ *   QUIT                           closes the connection            BYE
+ * The state is PLAYING, WON or LOST and every tile shown by the move is listed with its bombs nearby, or * for
+ * the bomb that lost the game. The first tile opened never has a bomb around it. Mistakes are answered with
+ * ERROR and a reason.
+ *
+ * Connections are handed out in turn to one selector loop for each core. A loop is the only thread that ever
+ * touches its connections and their boards, so games do not share anything and nothing is locked.
+ *
+ * Run with: java -cp target/classes src.main.java.GameServer [port] [loops]
+ */
+public class GameServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 7070;
+    // Games are kept small enough that thousands of them fit in memory
+    public static final int MAX_TILES = 1 << 16;
+    private static final int MAX_LINE = 256;
+    // Answers waiting to be sent past this stop the connection being read until the client reads them
+    private static final int MAX_PENDING = 1 << 16;
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final ServerSocketChannel server;
+    private final Loop[] loops;
+    private volatile boolean running = true;
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int loops = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        GameServer server = start(new InetSocketAddress(port), loops);
+        System.out.println("Serving games on port " + server.getPort() + " with " + loops + " loops");
+    }
+
+    private GameServer(ServerSocketChannel server, int loopsAmount) throws IOException {
+        this.server = server;
+        this.loops = new Loop[loopsAmount];
+        for(int i = 0; i < loopsAmount; i++){
+            loops[i] = new Loop();
+            Thread thread = new Thread(loops[i], "Game loop " + i);
+            thread.setDaemon(false);
+            thread.start();
+        }
+        new Thread(this::accept, "Game acceptor").start();
+    }
+
+    /**
+     * @param address Port 0 picks any free port, see {@link #getPort()}
+     */
+    public static GameServer start(InetSocketAddress address, int loops) throws IOException {
+        if(loops < 1){
+            throw new IllegalArgumentException("At least one loop is needed");
+        }
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(address, 4096);
+        return new GameServer(server, loops);
+    }
+
+    public int getPort(){
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Takes new connections on a blocking channel and gives them to the loops in turn
+     */
+    private void accept(){
+        int next = 0;
+        while(running){
+            try{
+                SocketChannel channel = server.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                loops[next].add(channel);
+                next = (next + 1) % loops.length;
+            }catch(IOException e){
+                if(!running) return;
+                System.err.println("Could not accept a connection: " + e.getMessage());
+                // Usually out of file descriptors, waiting gives closing connections time to free some
+                try{
+                    Thread.sleep(100);
+                }catch(InterruptedException interrupted){
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops taking connections and closes every game
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        server.close();
+        for(Loop loop : loops){
+            loop.close();
+        }
+    }
+
+    /**
+     * One thread with a selector over its connections
+     */
+    private static final class Loop implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> added = new ConcurrentLinkedQueue<>();
+        private final SplittableRandom seeds = new SplittableRandom();
+        // Answers are written here first, only this loop's thread uses it
+        private final StringBuilder answer = new StringBuilder();
+
+        private Loop() throws IOException {
+            selector = Selector.open();
+        }
+
+        private void add(SocketChannel channel){
+            added.add(channel);
+            selector.wakeup();
+        }
+
+        private void close() throws IOException {
+            for(SelectionKey key : selector.keys()){
+                key.channel().close();
+            }
+            selector.close();
+        }
+
+        @Override
+        public void run(){
+            try{
+                while(selector.isOpen()){
+                    selector.select();
+                    SocketChannel channel;
+                    while((channel = added.poll()) != null){
+                        try{
+                            channel.register(selector, SelectionKey.OP_READ, new Session(channel));
+                        }catch(IOException e){
+                            // Closed before it was taken up, the other connections carry on
+                            channel.close();
+                        }
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while(keys.hasNext()){
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        handle(key);
+                    }
+                }
+            }catch(ClosedSelectorException e){
+                // Closed by close()
+            }catch(IOException e){
+                System.err.println("Game loop stopped: " + e.getMessage());
+            }
+        }
+
+        private void handle(SelectionKey key){
+            Session session = (Session) key.attachment();
+            try{
+                if(!key.isValid()) return;
+                if(key.isReadable() && !session.read(this)){
+                    key.channel().close();
+                    return;
+                }
+                if(!key.isValid()) return;
+                boolean flushed = session.flush();
+                if(flushed && session.closing){
+                    key.channel().close();
+                    return;
+                }
+                // A client that sends moves without reading the answers is not read until it catches up, so
+                // the answers waiting for it cannot grow without end
+                int interest = flushed ? 0 : SelectionKey.OP_WRITE;
+                if(!session.closing && session.out.remaining() <= MAX_PENDING) interest |= SelectionKey.OP_READ;
+                key.interestOps(interest);
+            }catch(IOException | CancelledKeyException e){
+                // The client went away, or the server is closing
+                closeQuietly(key);
+            }catch(RuntimeException e){
+                // A bug in one game only ends that game, the loop carries on with the others
+                System.err.println("Closed a game after an error: " + e);
+                closeQuietly(key);
+            }
+        }
+
+        private static void closeQuietly(SelectionKey key){
+            try{
+                key.channel().close();
+            }catch(IOException ignored){
+                // Already gone
+            }
+        }
+    }
+
+    /**
+     * A connection and its game
+     */
+    private static final class Session {
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocate(MAX_LINE);
+        private ByteBuffer out = ByteBuffer.allocate(MAX_LINE);
+        private Board board;
+        private int bombsAmount;
+        private long seed;
+        private boolean started;
+        private boolean closing;
+
+        private Session(SocketChannel channel){
+            this.channel = channel;
+            out.flip();
+        }
+
+        /**
+         * Reads what arrived and answers every full line
+         * @return false once the other side closed the connection
+         */
+        private boolean read(Loop loop) throws IOException {
+            int read = channel.read(in);
+            if(read < 0) return false;
+            in.flip();
+            int lineStart = 0;
+            for(int i = in.position(); i < in.limit(); i++){
+                if(in.get(i) != '\n') continue;
+                int end = i > lineStart && in.get(i - 1) == '\r' ? i - 1 : i;
+                String line = new String(in.array(), lineStart, end - lineStart, StandardCharsets.US_ASCII);
+                loop.answer.setLength(0);
+                answer(line, loop);
+                write(loop.answer);
+                lineStart = i + 1;
+                if(closing) break;
+            }
+            in.position(lineStart);
+            in.compact();
+            if(!in.hasRemaining()){
+                in.clear();
+                write(loop.answer.replace(0, loop.answer.length(), "ERROR Line longer than " + MAX_LINE));
+                closing = true;
+            }
+            return true;
+        }
+
+        private void answer(String line, Loop loop){
+            StringBuilder answer = loop.answer;
+            String[] words = line.trim().split(" +");
+            String command = words[0].toUpperCase(Locale.ROOT);
+            try{
+                switch(command){
+                    case "NEW":
+                        if(words.length != 4 && words.length != 5){
+                            answer.append("ERROR NEW needs rows, columns and bombs");
+                            return;
+                        }
+                        newGame(Integer.parseInt(words[1]), Integer.parseInt(words[2]), Integer.parseInt(words[3]),
+                                words.length == 5 ? Long.parseLong(words[4]) : loop.seeds.nextLong(), answer);
+                        return;
+                    case "OPEN":
+                    case "MARK":
+                    case "UNMARK":
+                        int index = tile(words, answer);
+                        if(index < 0) return;
+                        if(command.equals("OPEN")){
+                            open(index, answer);
+                        }else if(command.equals("MARK")){
+                            board.mark(index);
+                            answer.append("MARKED ").append(state());
+                        }else{
+                            board.unmark(index);
+                            answer.append("UNMARKED ").append(state());
+                        }
+                        return;
+                    case "QUIT":
+                        answer.append("BYE");
+                        closing = true;
+                        return;
+                    default:
+                        answer.append("ERROR Unknown command ").append(words[0]);
+                }
+            }catch(NumberFormatException e){
+                answer.append("ERROR Not a number: ").append(e.getMessage());
+            }
+        }
+
+        private void newGame(int rowsAmount, int columnsAmount, int bombs, long gameSeed, StringBuilder answer){
+            BoardSize size;
+            try{
+                size = BoardSize.custom(rowsAmount, columnsAmount, bombs);
+            }catch(IllegalArgumentException e){
+                answer.append("ERROR ").append(e.getMessage());
+                return;
+            }
+            if(size.getTilesAmount() > MAX_TILES){
+                answer.append("ERROR Games can have at most ").append(MAX_TILES).append(" tiles");
+                return;
+            }
+            if(board != null && board.getRowsAmount() == rowsAmount && board.getColumnsAmount() == columnsAmount){
+                board.clear();
+            }else{
+                board = new Board(rowsAmount, columnsAmount);
+            }
+            bombsAmount = bombs;
+            seed = gameSeed;
+            started = false;
+            answer.append("GAME ").append(rowsAmount).append(' ').append(columnsAmount).append(' ').append(bombs);
+        }
+
+        /**
+         * @return Index of the tile the move names, or -1 after writing why it cannot be played
+         */
+        private int tile(String[] words, StringBuilder answer){
+            if(board == null){
+                answer.append("ERROR Start a game with NEW");
+                return -1;
+            }
+            if(board.isWon() || board.isLost()){
+                answer.append("ERROR The game is over, start another with NEW");
+                return -1;
+            }
+            if(words.length != 3){
+                answer.append("ERROR ").append(words[0]).append(" needs x and y");
+                return -1;
+            }
+            int x = Integer.parseInt(words[1]);
+            int y = Integer.parseInt(words[2]);
+            if(x < 0 || y < 0 || x >= board.getColumnsAmount() || y >= board.getRowsAmount()){
+                answer.append("ERROR Tile is not on the board");
+                return -1;
+            }
+            return board.index(x, y);
+        }
+
+        private void open(int index, StringBuilder answer){
+            if(!started){
+                int maxBombs = BoardGenerator.maxBombs(board, index);
+                if(bombsAmount > maxBombs){
+                    answer.append("ERROR Only ").append(maxBombs).append(" bombs fit when the game starts there");
+                    return;
+                }
+                BoardGenerator.placeBombs(board, bombsAmount, seed, index);
+                started = true;
+            }
+            int amount = board.open(index);
+            int[] opened = board.getOpened();
+            answer.append("SHOWN ").append(state()).append(' ').append(amount);
+            for(int i = 0; i < amount; i++){
+                int tile = opened[i];
+                answer.append(' ').append(board.getX(tile)).append(',').append(board.getY(tile)).append('=');
+                if(board.isBomb(tile)){
+                    answer.append('*');
+                }else{
+                    answer.append(board.getBombsNearby(tile));
+                }
+            }
+        }
+
+        private String state(){
+            if(board.isLost()) return "LOST";
+            return board.isWon() ? "WON" : "PLAYING";
+        }
+
+        /**
+         * Adds the answer and a new line to what is waiting to be sent
+         */
+        private void write(CharSequence answer){
+            int length = answer.length() + 1;
+            if(out.capacity() - out.remaining() < length){
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.remaining() + length));
+                grown.put(out);
+                out = grown;
+            }else{
+                out.compact();
+            }
+            for(int i = 0; i < answer.length(); i++){
+                out.put((byte) answer.charAt(i));
+            }
+            out.put(NEWLINE);
+            out.flip();
+        }
+
+        /**
+         * @return true once everything waiting was sent
+         */
+        private boolean flush() throws IOException {
+            if(out.hasRemaining()) channel.write(out);
+            return !out.hasRemaining();
+        }
+    }
+}
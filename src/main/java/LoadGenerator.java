@@ -0,0 +1,324 @@
+package src.main.java;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays expert games against a {@link GameServer} from many connections at once and reports how many moves the
+ * server answered each second and how long the answers took. Every client has one move waiting at a time and
+ * opens a covered tile at random, starting another game once one is over.
+ *
+ * Clients are spread over one selector thread for each core. Moves are only counted once every client is
+ * connected, for the given amount of seconds.
+ *
+ * Run with: java -cp target/classes src.main.java.LoadGenerator [clients] [seconds] [host] [port]
+ * Without a host a server is started in the same JVM on a free port.
+ */
+public final class LoadGenerator {
+    private static final String NEW_GAME = "NEW " + Difficulty.EXPERT.getRowsAmount() + " "
+            + Difficulty.EXPERT.getColumnsAmount() + " " + Difficulty.EXPERT.getBombsAmount();
+
+    private final AtomicInteger connected = new AtomicInteger();
+    private volatile boolean measuring = false;
+    private volatile boolean running = true;
+
+    private LoadGenerator(){
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        GameServer server = null;
+        InetSocketAddress address;
+        if(args.length > 2){
+            address = new InetSocketAddress(args[2], args.length > 3 ? Integer.parseInt(args[3])
+                    : GameServer.DEFAULT_PORT);
+        }else{
+            server = GameServer.start(new InetSocketAddress("localhost", 0),
+                    Runtime.getRuntime().availableProcessors());
+            address = new InetSocketAddress("localhost", server.getPort());
+        }
+
+        try{
+            new LoadGenerator().run(address, clients, seconds);
+        }finally{
+            if(server != null) server.close();
+        }
+    }
+
+    private void run(InetSocketAddress address, int clients, int seconds) throws IOException, InterruptedException {
+        int threadsAmount = Math.min(clients, Runtime.getRuntime().availableProcessors());
+        Driver[] drivers = new Driver[threadsAmount];
+        Thread[] threads = new Thread[threadsAmount];
+        for(int i = 0; i < threadsAmount; i++){
+            drivers[i] = new Driver(address, clients * (i + 1) / threadsAmount - clients * i / threadsAmount, i);
+            threads[i] = new Thread(drivers[i], "Load driver " + i);
+            threads[i].start();
+        }
+
+        long connectStart = System.nanoTime();
+        while(connected.get() < clients && System.nanoTime() - connectStart < 60_000_000_000L){
+            Thread.sleep(10);
+        }
+        System.out.printf("%d of %d clients connected in %.1f s%n", connected.get(), clients,
+                (System.nanoTime() - connectStart) / 1e9);
+
+        measuring = true;
+        long start = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        measuring = false;
+        double measured = (System.nanoTime() - start) / 1e9;
+        running = false;
+        for(int i = 0; i < threadsAmount; i++){
+            drivers[i].selector.wakeup();
+            threads[i].join();
+        }
+
+        Histogram latency = new Histogram();
+        long games = 0;
+        long errors = 0;
+        for(Driver driver : drivers){
+            latency.add(driver.latency);
+            games += driver.games;
+            errors += driver.errors;
+        }
+        System.out.printf("%d moves in %.1f s: %.0f moves/s, %.0f games/s, %d errors%n", latency.count, measured,
+                latency.count / measured, games / measured, errors);
+        System.out.printf("Latency us: p50 %d, p90 %d, p99 %d, p99.9 %d, max %d%n", latency.percentile(50),
+                latency.percentile(90), latency.percentile(99), latency.percentile(99.9), latency.max);
+    }
+
+    /**
+     * One thread with a selector over its clients
+     */
+    private final class Driver implements Runnable {
+        private final Selector selector;
+        private final SplittableRandom random;
+        private final Histogram latency = new Histogram();
+        private long games;
+        private long errors;
+
+        private Driver(InetSocketAddress address, int clients, int number) throws IOException {
+            selector = Selector.open();
+            random = new SplittableRandom(number);
+            for(int i = 0; i < clients; i++){
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                channel.connect(address);
+                channel.register(selector, SelectionKey.OP_CONNECT, new Client(channel));
+            }
+        }
+
+        @Override
+        public void run(){
+            try{
+                while(running){
+                    selector.select();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while(keys.hasNext()){
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        try{
+                            handle(key);
+                        }catch(IOException e){
+                            // The server closed the connection, the client is left out from then on
+                            errors++;
+                            key.channel().close();
+                        }
+                    }
+                }
+            }catch(IOException e){
+                System.err.println("Load driver stopped: " + e.getMessage());
+            }finally{
+                for(SelectionKey key : selector.keys()){
+                    try{
+                        key.channel().close();
+                    }catch(IOException ignored){
+                        // Closing anyway
+                    }
+                }
+            }
+        }
+
+        private void handle(SelectionKey key) throws IOException {
+            Client client = (Client) key.attachment();
+            if(key.isConnectable()){
+                try{
+                    client.channel.finishConnect();
+                }catch(IOException e){
+                    System.err.println("Could not connect: " + e.getMessage());
+                    key.cancel();
+                    return;
+                }
+                connected.incrementAndGet();
+                key.interestOps(SelectionKey.OP_READ);
+                client.send(NEW_GAME);
+                return;
+            }
+            if(key.isReadable()){
+                String line;
+                while((line = client.readLine()) != null){
+                    answered(client, line);
+                }
+            }
+        }
+
+        private void answered(Client client, String line) throws IOException {
+            if(measuring){
+                latency.record((System.nanoTime() - client.sentNanos) / 1000);
+            }
+            if(line.startsWith("GAME")){
+                client.shown = new boolean[Difficulty.EXPERT.getRowsAmount() * Difficulty.EXPERT.getColumnsAmount()];
+                client.shownAmount = 0;
+            }else if(line.startsWith("SHOWN")){
+                client.show(line);
+                if(!line.startsWith("SHOWN PLAYING")){
+                    if(measuring) games++;
+                    client.send(NEW_GAME);
+                    return;
+                }
+            }else{
+                if(measuring) errors++;
+                client.send(NEW_GAME);
+                return;
+            }
+            int tile = client.pickCovered(random);
+            int columns = Difficulty.EXPERT.getColumnsAmount();
+            client.send("OPEN " + tile % columns + " " + tile / columns);
+        }
+    }
+
+    /**
+     * A connection and what its game shows
+     */
+    private static final class Client {
+        private final SocketChannel channel;
+        private ByteBuffer in = ByteBuffer.allocate(4096);
+        private long sentNanos;
+        private boolean[] shown;
+        private int shownAmount;
+
+        private Client(SocketChannel channel){
+            this.channel = channel;
+        }
+
+        private void send(String line) throws IOException {
+            ByteBuffer out = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.US_ASCII));
+            sentNanos = System.nanoTime();
+            // Lines are short enough to always fit in the socket's buffer with one move waiting
+            while(out.hasRemaining()){
+                channel.write(out);
+            }
+        }
+
+        /**
+         * @return The next full line that arrived, or null until more is read
+         */
+        private String readLine() throws IOException {
+            while(true){
+                for(int i = 0; i < in.position(); i++){
+                    if(in.get(i) != '\n') continue;
+                    String line = new String(in.array(), 0, i, StandardCharsets.US_ASCII);
+                    in.flip();
+                    in.position(i + 1);
+                    in.compact();
+                    return line;
+                }
+                if(!in.hasRemaining()){
+                    ByteBuffer grown = ByteBuffer.allocate(in.capacity() * 2);
+                    in.flip();
+                    grown.put(in);
+                    in = grown;
+                }
+                if(channel.read(in) <= 0) return null;
+            }
+        }
+
+        /**
+         * Keeps the tiles of a SHOWN answer, written as x,y=n after the state and amount
+         */
+        private void show(String line){
+            int columns = Difficulty.EXPERT.getColumnsAmount();
+            String[] words = line.split(" ");
+            for(int i = 3; i < words.length; i++){
+                String word = words[i];
+                int comma = word.indexOf(',');
+                int equals = word.indexOf('=', comma);
+                int x = Integer.parseInt(word, 0, comma, 10);
+                int y = Integer.parseInt(word, comma + 1, equals, 10);
+                if(!shown[y * columns + x]){
+                    shown[y * columns + x] = true;
+                    shownAmount++;
+                }
+            }
+        }
+
+        private int pickCovered(SplittableRandom random){
+            int tile = random.nextInt(shown.length);
+            for(int i = 0; i < shown.length; i++){
+                int candidate = (tile + i) % shown.length;
+                if(!shown[candidate]) return candidate;
+            }
+            return tile;
+        }
+    }
+
+    /**
+     * Counts of values in microseconds, 32 buckets for each power of two so a bucket is within 1/32 of its values
+     */
+    private static final class Histogram {
+        private static final int SUB_BUCKETS = 32;
+        private final long[] counts = new long[64 * SUB_BUCKETS];
+        private long count;
+        private long max;
+
+        private void record(long micros){
+            counts[bucket(Math.max(0, micros))]++;
+            count++;
+            max = Math.max(max, micros);
+        }
+
+        private void add(Histogram other){
+            for(int i = 0; i < counts.length; i++){
+                counts[i] += other.counts[i];
+            }
+            count += other.count;
+            max = Math.max(max, other.max);
+        }
+
+        private static int bucket(long micros){
+            if(micros < SUB_BUCKETS) return (int) micros;
+            int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+            int sub = (int) (micros >>> (magnitude - 5)) & (SUB_BUCKETS - 1);
+            return (magnitude - 4) * SUB_BUCKETS + sub;
+        }
+
+        /**
+         * @return Smallest value of the bucket
+         */
+        private static long value(int bucket){
+            if(bucket < SUB_BUCKETS) return bucket;
+            int magnitude = bucket / SUB_BUCKETS + 4;
+            return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (magnitude - 5);
+        }
+
+        private long percentile(double percentile){
+            long wanted = (long) Math.ceil(percentile / 100 * count);
+            long seen = 0;
+            for(int i = 0; i < counts.length; i++){
+                seen += counts[i];
+                if(seen >= wanted && seen > 0) return value(i);
+            }
+            return max;
+        }
+    }
+}
@@ -1,27 +1,39 @@
 package src.main.java;
 
 import javafx.application.Application;
+import javafx.animation.AnimationTimer;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
 import javafx.geometry.Orientation;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
+import javafx.scene.input.KeyCode;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.*;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Rectangle;
+import javafx.scene.text.Font;
 import javafx.scene.text.Text;
 import javafx.scene.text.TextFlow;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Optional;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -29,22 +41,115 @@ import java.util.concurrent.TimeUnit;
  * each difficulty name (easy, intermediate, expert, and custom)
  */
 public class Main extends Application {
-    private Difficulty difficulty = Difficulty.EASY;
+    private static final String CUSTOM = "Custom";
+    private static final String ENDLESS = "Endless";
+
+    private BoardSize boardSize = BoardSize.of(Difficulty.EASY);
     private boolean isPregame = true;
-    private boolean userBegan = false;
     private boolean isPaused = false;
     private boolean gameEnded = false;
 
+    private Label difficultyDisplay;
     private Label timeDisplay;
-    private int secondsPassed;
+    private Button pauseButton;
+    private final GameClock clock = new GameClock();
+    // Only runs while the clock does, updates the time shown once for each frame
+    private final AnimationTimer clockDisplay = new AnimationTimer(){
+        @Override
+        public void handle(long now){
+            showTime();
+        }
+    };
+    private long shownTenths = -1;
     private Label bombsLeftDisplay;
 
     private VBox mainHolder;
     private ScrollPane gameBoardHolder;
-    private GridPane gameBoard;
+    // Holds gameBoardHolder with the minimap over its corner
+    private StackPane gameBoardArea;
+    // Only made for boards with at least MINIMAP_TILES tiles, null otherwise
+    private static final int MINIMAP_TILES = 10_000;
+    private Minimap minimap;
+    private BoardView gameBoard;
     private VBox extraHolder = new VBox();  // For changing difficulty and help
-    private Tile startingTile;
-    private Tile[][] gameMatrix;
+    // Takes the place of gameBoardHolder while an endless game is played
+    private EndlessView endless;
+    private boolean endlessMode = false;
+    // Made the first time they are needed and kept for the next time
+    private Alert helpAlert;
+    private Alert difficultyAlert;
+    private Alert errorAlert;
+    private VBox helpPane;
+    private VBox difficultyPane;
+    private ChoiceBox<String> choicesHolder;
+    private TextField rowsField;
+    private TextField columnsField;
+    private TextField bombsField;
+    private CheckBox noGuessingBox;
+    private int startingIndex;
+    private Board board;
+    private final SplittableRandom seeds = new SplittableRandom();
+    private long seed;
+    // Boards that never need a guess, only for the difficulties. Made the first time no guessing is chosen
+    private BoardPool boardPool;
+    private boolean noGuessing = false;
+    // Boards with at least this many tiles are made, and have their bombs placed, on the preparer thread while a
+    // progress bar is shown. Only one is prepared at a time, starting another game drops it.
+    private static final int PREPARED_TILES = 1 << 20;
+    private final ExecutorService preparer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Board preparation");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Task<?> preparing;
+    private VBox progressPane;
+    private Label progressLabel;
+    private ProgressBar progressBar;
+    // Files are opened on the warm-up thread so the first frame does not wait for the disk, each is null if it
+    // could not be opened
+    private final ExecutorService warmUp = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Warm up");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Every game is recorded and added to the archive once it is over
+    private CompletableFuture<ReplayArchive> replayArchive;
+    private Replay replay;
+    // A copy of the game is written on the saver thread every few seconds while playing, so it survives a crash
+    private CompletableFuture<Path> autosaveFile;
+    private final ExecutorService saver = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Autosave");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Timeline autosave = new Timeline(new KeyFrame(Duration.seconds(10), event -> autosave()));
+    private boolean unsaved = false;
+    // Every finished game is kept, with the clicks it took
+    private CompletableFuture<StatsStore> statsStore;
+    private int clicks;
+    // Moves of this game that can be taken back with Ctrl+Z and made again with Ctrl+Y
+    private MoveHistory history;
+    // Chance of a bomb under each covered tile, shown over the board while the H key has it turned on
+    private boolean showHeatmap = false;
+    private ProbabilityCalculator probabilities;
+    // Where time goes between a click and its frame, shown in the stats panel and sent to Flight Recorder
+    private final Metrics metrics = new Metrics();
+    private final Path metricsFile = Metrics.dumpFile();
+    private Label statsDisplay;
+    private final Timeline statsRefresh = new Timeline(new KeyFrame(Duration.millis(500), event -> showStats()));
+    private FlightEvents.Click pendingClick;
+    private long pendingClickNanos;
+    private FlightEvents.Pulse pulseEvent;
+    private long pulseStartNanos;
+    // Runs at the start of every pulse while pulses are measured
+    private final AnimationTimer pulseMeter = new AnimationTimer(){
+        @Override
+        public void handle(long now){
+            pulseStartNanos = System.nanoTime();
+            pulseEvent = new FlightEvents.Pulse();
+            pulseEvent.begin();
+        }
+    };
 
     private int bombAmount;
 
@@ -54,19 +159,208 @@ public class Main extends Application {
         mainHolder.setAlignment(Pos.TOP_CENTER);
         mainHolder.setSpacing(10);
         mainHolder.getChildren().remove(new HBox());
-        newGame(difficulty);
-
-        // Thread making
-        Thread timingThread = new Timing();
-        ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
-        executor.scheduleAtFixedRate(timingThread, 0, 1, TimeUnit.SECONDS);
-
-        // Allows the game to fully shutdown and remove ScheduledExecutorService
-        primaryStage.setOnCloseRequest(e -> System.exit(0)); // 0 since we do want to close the program
+        replayArchive = openOffThread(ReplayArchive::openDefault, "Games will not be recorded");
+        statsStore = openOffThread(StatsStore::openDefault, "Statistics will not be kept");
+        autosaveFile = openOffThread(() -> DataDirectory.resolve(SavedGame.FILE_NAME), "Games will not be saved");
+        autosave.setCycleCount(Timeline.INDEFINITE);
+        newGame(boardSize);
 
         Scene scene = new Scene(mainHolder, Measurements.windowWidth.value(), Measurements.windowHeight.value());
+        scene.addPostLayoutPulseListener(this::pulseEnded);
+        statsRefresh.setCycleCount(Timeline.INDEFINITE);
+        if(metricsFile != null) pulseMeter.start();
+        scene.setOnKeyPressed(event -> {
+            if(event.getCode() == KeyCode.H) toggleHeatmap();
+            if(event.isShortcutDown() && event.getCode() == KeyCode.Z){
+                if(event.isShiftDown()) redo(); else undo();
+            }
+            if(event.isShortcutDown() && event.getCode() == KeyCode.Y) redo();
+        });
         primaryStage.setScene(scene);
         primaryStage.show();
+
+        new AnimationTimer(){
+            @Override
+            public void handle(long now){
+                stop();
+                StartupBenchmark.firstFrame();
+                if(StartupBenchmark.isAuto()){
+                    clickedOn(board.index(board.getColumnsAmount() / 2, board.getRowsAmount() / 2), false);
+                    Platform.exit();
+                    return;
+                }
+                // Offered once the window is up and the save file is known
+                autosaveFile.thenRun(() -> Platform.runLater(Main.this::offerRestore));
+            }
+        }.start();
+        warmUp.execute(Main::warmUpEngine);
+    }
+
+    private interface Opener<T> {
+        T open() throws IOException;
+    }
+
+    private <T> CompletableFuture<T> openOffThread(Opener<T> opener, String failure){
+        return CompletableFuture.supplyAsync(() -> {
+            try{
+                return opener.open();
+            }catch(IOException | RuntimeException e){
+                // Broken files are reported the same way, the game is played without what they hold
+                System.err.println(failure + ": " + e);
+                return null;
+            }
+        }, warmUp);
+    }
+
+    /**
+     * @return What the warm-up thread opened, waiting for it if it is not done yet, or null if it could not be opened
+     */
+    private static <T> T opened(CompletableFuture<T> future){
+        return future.join();
+    }
+
+    /**
+     * Loads and runs the game classes once on a throwaway board, so the first real click does not pay for it
+     */
+    private static void warmUpEngine(){
+        Board board = new Board(Difficulty.EXPERT.getRowsAmount(), Difficulty.EXPERT.getColumnsAmount());
+        int middle = board.index(board.getColumnsAmount() / 2, board.getRowsAmount() / 2);
+        BoardGenerator.placeBombs(board, Difficulty.EXPERT.getBombsAmount(), 0, middle);
+        new Solver(true).play(board, middle);
+        board.getThreeBV();
+        new Replay(BoardSize.of(Difficulty.EXPERT), 0, middle).finish(Replay.WON, 0);
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        if(!isPregame && !gameEnded){
+            unsaved = true;
+            autosave();
+            finishReplay(Replay.ABANDONED);
+        }
+        saver.shutdown();
+        saver.awaitTermination(10, TimeUnit.SECONDS);
+        if(opened(replayArchive) != null){
+            opened(replayArchive).close();
+        }
+        if(opened(statsStore) != null){
+            opened(statsStore).close();
+        }
+        warmUp.shutdownNow();
+        if(endless != null){
+            closeEndless();
+        }
+        preparer.shutdownNow();
+        if(metricsFile != null){
+            metrics.nodes.record(countNodes(mainHolder));
+            try{
+                metrics.write(metricsFile);
+            }catch(IOException e){
+                System.err.println("Could not write the metrics: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Copies the game if it changed since the last save and writes the copy on the saver thread
+     */
+    private void autosave(){
+        Path file = opened(autosaveFile);
+        if(file == null || !unsaved || isPregame || gameEnded) return;
+        unsaved = false;
+        SavedGame saved = SavedGame.of(board, boardSize, seed, startingIndex, clock.getElapsedMillis());
+        saver.execute(() -> {
+            try{
+                saved.write(file);
+            }catch(IOException e){
+                System.err.println("Could not save the game: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Removes the saved game after the saves still being written
+     */
+    private void deleteAutosave(){
+        autosave.stop();
+        unsaved = false;
+        Path file = opened(autosaveFile);
+        if(file == null) return;
+        saver.execute(() -> {
+            try{
+                Files.deleteIfExists(file);
+            }catch(IOException e){
+                System.err.println("Could not remove the saved game: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Asks the player if they want to carry on with the game that was saved when the program last closed. Only the
+     * header of the save is read before asking.
+     */
+    private void offerRestore(){
+        Path file = opened(autosaveFile);
+        if(file == null || !Files.exists(file)) return;
+
+        SavedGame saved;
+        try{
+            saved = SavedGame.readHeader(file);
+        }catch(IOException e){
+            System.err.println("Could not load the saved game: " + e.getMessage());
+            deleteAutosave();
+            return;
+        }
+
+        String QUESTION = "Do you want to carry on with your last game?";
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, QUESTION, ButtonType.YES, ButtonType.NO);
+        Optional<ButtonType> result = alert.showAndWait();
+        if(result.isPresent() && result.get().equals(ButtonType.YES)){
+            restore(saved);
+        }else{
+            deleteAutosave();
+        }
+    }
+
+    /**
+     * Makes the saved board on the preparer thread, then puts the game on it
+     */
+    private void restore(SavedGame saved){
+        Task<Board> task = new Task<>(){
+            @Override
+            protected Board call() throws IOException {
+                updateMessage("Loading the saved game of " + saved.getSize().getTilesAmount() + " tiles");
+                return saved.toBoard();
+            }
+        };
+        prepare(task, () -> restore(saved, task.getValue()));
+    }
+
+    /**
+     * Puts the saved game on the board. It starts paused so the clock only runs once the player resumes.
+     * Restored games are not recorded as replays since the moves before the save are not known.
+     */
+    private void restore(SavedGame saved, Board restoredBoard){
+        newGame(saved.getSize(), restoredBoard);
+        seed = saved.getSeed();
+        startingIndex = saved.getStartingIndex();
+        clicks = 0;  // Clicks from before the save are not kept
+        if(minimap != null) minimap.showBoard();
+        history = MoveHistory.of(board);
+        Board restored = board;
+        preparer.execute(restored::getThreeBV);
+
+        isPregame = false;
+        clock.set(saved.getElapsedMillis());
+        timeDisplay.setText(GameClock.format(clock.getElapsedMillis()));
+        bombAmount = Math.max(0, board.getBombsAmount() - board.getMarkedAmount());
+        bombsLeftDisplay.setText(String.valueOf(bombAmount));
+
+        isPaused = true;
+        gameBoard.setVisible(false);
+        pauseButton.setText("Resume");
+        autosave.play();
+        if(showHeatmap) startHeatmap();
     }
 
     /**
@@ -76,7 +370,7 @@ public class Main extends Application {
      */
     private VBox generateInformationSection(){
         SplitPane topHolder = getInformationSplitPane();
-        Label difficultyDisplay = getInformationLabel(difficulty.toString());
+        difficultyDisplay = getInformationLabel(boardSize.toString());
         timeDisplay = getInformationLabel("0");
         bombsLeftDisplay = getInformationLabel("Bombs left: 0");
         topHolder.getItems().addAll(difficultyDisplay, timeDisplay, bombsLeftDisplay);
@@ -84,18 +378,34 @@ public class Main extends Application {
         SplitPane bottomHolder = getInformationSplitPane();
         Button changeDifficulty = getInformationButton("Change difficulty");
         changeDifficulty.setOnAction(event -> changeDifficulty());
-        Button pause = getInformationButton("Pause");
-        pause.setOnAction(e -> pause(pause));
+        pauseButton = getInformationButton("Pause");
+        pauseButton.setOnAction(e -> pause());
         Button newGame = getInformationButton("New");
-        newGame.setOnAction(event -> newGame(difficulty));
+        newGame.setOnAction(event -> {
+            if(endlessMode){
+                newEndlessGame();
+            }else{
+                newGame(boardSize);
+            }
+        });
         // Pause and newGame must be located in the middle
-        HBox middle = new HBox(pause, newGame);
+        HBox middle = new HBox(pauseButton, newGame);
         middle.setMaxWidth(Measurements.windowWidth.value() / 3);
         Button help = getInformationButton("Help");
         help.setOnAction(event -> help());
-        bottomHolder.getItems().addAll(changeDifficulty, middle, help); //pause and newGame together
-
-        return new VBox(topHolder, bottomHolder);
+        Button stats = getInformationButton("Stats");
+        stats.setOnAction(event -> toggleStats());
+        HBox right = new HBox(help, stats);
+        right.setMaxWidth(Measurements.windowWidth.value() / 3);
+        bottomHolder.getItems().addAll(changeDifficulty, middle, right); //pause and newGame together
+
+        // Rolling percentiles of the metrics, hidden until the stats button is pressed
+        statsDisplay = new Label();
+        statsDisplay.setFont(Font.font("Monospaced", 11));
+        statsDisplay.setVisible(false);
+        statsDisplay.setManaged(false);
+
+        return new VBox(topHolder, bottomHolder, statsDisplay);
     }
     /**
      * Specially designed SplitPane for information view
@@ -131,24 +441,31 @@ public class Main extends Application {
      * Help on the program
      */
     private void help(){
-        String WARNING = "The current game will be deleted if you want help";
-        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, WARNING, ButtonType.OK, ButtonType.CANCEL);
-        Optional<ButtonType> result = alert.showAndWait();
+        if(helpAlert == null){
+            String WARNING = "The current game will be deleted if you want help";
+            helpAlert = new Alert(Alert.AlertType.CONFIRMATION, WARNING, ButtonType.OK, ButtonType.CANCEL);
+        }
+        Optional<ButtonType> result = helpAlert.showAndWait();
         if(result.isPresent()){
             if(result.get().equals(ButtonType.OK)){
                 // Makes space
                 removeCurrentGame();
-                extraHolder.getChildren().clear();
                 mainHolder.getChildren().remove(extraHolder);
 
-                // Text has leading space so the text isn't touching the edge of the window
-                Text part1 = new Text("  This game was based off of: ");
-                Hyperlink linkToSource = new Hyperlink("http://minesweeperonline.com/");
-                Text part2 = new Text("\n  Instructions on how to play can be found here: ");
-                Hyperlink linkToInstructions =
-                        new Hyperlink("http://www.instructables.com/id/How-to-beat-Minesweeper/");
-
-                extraHolder.getChildren().add(new TextFlow(part1, linkToSource, part2, linkToInstructions));
+                if(helpPane == null){
+                    // Text has leading space so the text isn't touching the edge of the window
+                    Text part1 = new Text("  This game was based off of: ");
+                    Hyperlink linkToSource = new Hyperlink("http://minesweeperonline.com/");
+                    Text part2 = new Text("\n  Instructions on how to play can be found here: ");
+                    Hyperlink linkToInstructions =
+                            new Hyperlink("http://www.instructables.com/id/How-to-beat-Minesweeper/");
+                    Text part3 =
+                            new Text("\n  Press H during a game to shade covered tiles by their chance of a bomb."
+                                    + "\n  Drag or scroll to move around an endless board."
+                                    + "\n  Ctrl+Z takes back a move and Ctrl+Y makes it again.");
+                    helpPane = new VBox(new TextFlow(part1, linkToSource, part2, linkToInstructions, part3));
+                }
+                extraHolder = helpPane;
                 mainHolder.getChildren().add(extraHolder);
             }
         }
@@ -160,522 +477,836 @@ public class Main extends Application {
      */
     private void changeDifficulty(){
         // Warns player that the current game will be deleted
-        String WARNING = "The current game will be deleted if you change difficulty.";
-        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, WARNING, ButtonType.OK, ButtonType.CANCEL);
-        Optional<ButtonType> result = alert.showAndWait();
+        if(difficultyAlert == null){
+            String WARNING = "The current game will be deleted if you change difficulty.";
+            difficultyAlert = new Alert(Alert.AlertType.CONFIRMATION, WARNING, ButtonType.OK, ButtonType.CANCEL);
+        }
+        Optional<ButtonType> result = difficultyAlert.showAndWait();
         if(result.isPresent()){
             if(result.get().equals(ButtonType.OK)){
                 // Makes space
                 removeCurrentGame();
-                extraHolder.getChildren().clear();
                 mainHolder.getChildren().remove(extraHolder);
 
-                ObservableList<String> choices =
-                        FXCollections.observableArrayList("Easy", "Intermediate", "Expert");
-                ChoiceBox choicesHolder = new ChoiceBox(choices);
+                if(difficultyPane == null){
+                    difficultyPane = createDifficultyPane();
+                }
                 // Reminds player what mode they are playing on (even though it is on top)
-                choicesHolder.getSelectionModel().select(difficulty.toString());
-
-                // Creates a new game based on the choice
-                Button confirm = new Button("Create game");
-                confirm.setOnAction(event -> {
-                    String selectedDifficulty = (String) choicesHolder.getSelectionModel().getSelectedItem();
-                    selectedDifficulty = selectedDifficulty.toUpperCase();  //Enums are CAPS
-                    newGame(Difficulty.valueOf(selectedDifficulty));
-                });
-
-                extraHolder = new VBox(choicesHolder, confirm);
-                extraHolder.setSpacing(20);
+                String current = boardSize.isCustom() ? CUSTOM : boardSize.toString();
+                choicesHolder.getSelectionModel().select(endlessMode ? ENDLESS : current);
+                rowsField.setText(String.valueOf(boardSize.getRowsAmount()));
+                columnsField.setText(String.valueOf(boardSize.getColumnsAmount()));
+                bombsField.setText(String.valueOf(boardSize.getBombsAmount()));
+                noGuessingBox.setSelected(noGuessing);
+
+                extraHolder = difficultyPane;
                 mainHolder.getChildren().add(extraHolder);
             }
         }
     }
 
+    /**
+     * Builds the pane for choosing a difficulty once, {@link #changeDifficulty()} fills in the current values
+     */
+    private VBox createDifficultyPane(){
+        ObservableList<String> choices =
+                FXCollections.observableArrayList("Easy", "Intermediate", "Expert", CUSTOM, ENDLESS);
+        choicesHolder = new ChoiceBox<>(choices);
+
+        // Custom boards can have any amount of rows, columns and bombs
+        rowsField = getCustomField("Rows", boardSize.getRowsAmount());
+        columnsField = getCustomField("Columns", boardSize.getColumnsAmount());
+        bombsField = getCustomField("Bombs", boardSize.getBombsAmount());
+        HBox customHolder = new HBox(rowsField, columnsField, bombsField);
+        customHolder.setSpacing(10);
+        customHolder.disableProperty().bind(choicesHolder.valueProperty().isNotEqualTo(CUSTOM));
+        noGuessingBox = new CheckBox("No guessing");
+        noGuessingBox.disableProperty().bind(choicesHolder.valueProperty().isEqualTo(CUSTOM)
+                .or(choicesHolder.valueProperty().isEqualTo(ENDLESS)));
+
+        // Creates a new game based on the choice
+        Button confirm = new Button("Create game");
+        confirm.setOnAction(event -> {
+            String selectedDifficulty = choicesHolder.getSelectionModel().getSelectedItem();
+            if(selectedDifficulty.equals(ENDLESS)){
+                newEndlessGame();
+                return;
+            }
+            if(!selectedDifficulty.equals(CUSTOM)){
+                selectedDifficulty = selectedDifficulty.toUpperCase();  //Enums are CAPS
+                BoardSize selectedSize = BoardSize.of(Difficulty.valueOf(selectedDifficulty));
+                noGuessing = noGuessingBox.isSelected();
+                if(noGuessing){
+                    boardPool().prefill(selectedSize);
+                }
+                newGame(selectedSize);
+                return;
+            }
+            try{
+                newGame(BoardSize.custom(Integer.parseInt(rowsField.getText().trim()),
+                        Integer.parseInt(columnsField.getText().trim()),
+                        Integer.parseInt(bombsField.getText().trim())));
+            }catch(NumberFormatException e){
+                showError("Rows, columns and bombs must be whole numbers");
+            }catch(IllegalArgumentException e){
+                showError(e.getMessage());
+            }
+        });
+
+        VBox pane = new VBox(choicesHolder, customHolder, noGuessingBox, confirm);
+        pane.setSpacing(20);
+        return pane;
+    }
+
+    private void showError(String message){
+        if(errorAlert == null){
+            errorAlert = new Alert(Alert.AlertType.ERROR);
+        }
+        errorAlert.setContentText(message);
+        errorAlert.showAndWait();
+    }
+
+    private TextField getCustomField(String name, int value){
+        TextField field = new TextField(String.valueOf(value));
+        field.setPromptText(name);
+        field.setPrefColumnCount(6);
+        return field;
+    }
+
     /**
      * Pauses and resume the game and prevent user from seeing the board
      */
-    private void pause(Button self){
+    private void pause(){
         // Make sure the game is actually being played
-        if(isPregame || gameEnded) return;
+        if(!isPlaying()) return;
+        Node shownBoard = endless != null ? endless : gameBoard;
 
         if(isPaused){
             // Resume the game
             isPaused = false;
-            gameBoard.setVisible(true);
-            self.setText("Pause");
+            shownBoard.setVisible(true);
+            pauseButton.setText("Pause");
+            startClock();
 
         }else{
             // Pause the game
             isPaused = true;
-            gameBoard.setVisible(false);
-            self.setText("Resume");
+            shownBoard.setVisible(false);
+            pauseButton.setText("Resume");
+            stopClock();
+
+        }
+    }
 
+    /**
+     * @return true from the first move of a game until it ends, endless games included
+     */
+    private boolean isPlaying(){
+        if(endless != null){
+            EndlessBoard endlessBoard = endless.getBoard();
+            return endlessBoard.isStarted() && !endlessBoard.isLost() && !endless.hasFailed();
         }
+        return !isPregame && !gameEnded;
+    }
+
+    private void startClock(){
+        clock.start();
+        clockDisplay.start();
+    }
+
+    /**
+     * Stops the clock and shows the exact time played
+     */
+    private void stopClock(){
+        clock.pause();
+        clockDisplay.stop();
+        shownTenths = -1;
+        timeDisplay.setText(GameClock.format(clock.getElapsedMillis()));
+    }
+
+    /**
+     * Shows tenths of a second while playing, the label only changes when the shown value does
+     */
+    private void showTime(){
+        long tenths = clock.getElapsedMillis() / 100;
+        if(tenths == shownTenths) return;
+        shownTenths = tenths;
+        timeDisplay.setText(tenths / 10 + "." + tenths % 10);
     }
 
     /**
      * Begins a new game by recreating the gameBoard and updating the information on top to fit a new game.
      */
-    private void newGame(Difficulty newDifficulty){
+    private void newGame(BoardSize newBoardSize){
+        if(newBoardSize.getTilesAmount() < PREPARED_TILES){
+            newGame(newBoardSize, new Board(newBoardSize.getRowsAmount(), newBoardSize.getColumnsAmount()));
+            return;
+        }
+        // Large boards take a while to allocate, the window keeps drawing while it is done
+        removeCurrentGame();
+        mainHolder.getChildren().remove(extraHolder);
+        difficultyDisplay.setText(newBoardSize.toString());
+        Task<Board> task = new Task<>(){
+            @Override
+            protected Board call(){
+                updateMessage("Making a board of " + newBoardSize.getTilesAmount() + " tiles");
+                Topology topology = Topology.square(newBoardSize.getRowsAmount(), newBoardSize.getColumnsAmount());
+                // Another game may have been started while the topology was found, its board is not needed then
+                if(isCancelled()) return null;
+                Board made = new Board(topology);
+                return isCancelled() ? null : made;
+            }
+        };
+        prepare(task, () -> newGame(newBoardSize, task.getValue()));
+    }
+
+    /**
+     * @param newBoard  Empty board for a new game, or a restored one
+     */
+    private void newGame(BoardSize newBoardSize, Board newBoard){
         // Removes things blocking where the new game goes
         removeCurrentGame();
         mainHolder.getChildren().remove(extraHolder);
 
         // Update global variable
+        endlessMode = false;
         isPregame = true;
         gameEnded = false;
-        secondsPassed = 0;
-        userBegan = false;
+        isPaused = false;
+        pauseButton.setText("Pause");
 
         // Generates new game and updates view
-        difficulty = newDifficulty;
-        generateGameBoard();
-        mainHolder.getChildren().add(gameBoardHolder);
-        timeDisplay.setText(String.valueOf(secondsPassed));
+        boardSize = newBoardSize;
+        seed = seeds.nextLong();
+        difficultyDisplay.setText(boardSize.toString());
+        generateGameBoard(newBoard);
+        mainHolder.getChildren().add(gameBoardArea);
     }
 
-
-    private class Timing extends Thread{
-        @Override
-        public void run() {
-            if(userBegan && !isPregame && !gameEnded && !isPaused){
-                Platform.runLater(() -> {
-                    secondsPassed++;
-                    timeDisplay.setText(String.valueOf(secondsPassed));
-                });
-            }
+    private void removeCurrentGame(){
+        if(!isPregame && !gameEnded){
+            finishReplay(Replay.ABANDONED);
+            deleteAutosave();
         }
-    }
+        stopHeatmap();
 
-    private void removeCurrentGame(){
         // Update information section
         bombsLeftDisplay.setText("0");
-        secondsPassed = 0;
-        timeDisplay.setText(String.valueOf(secondsPassed));
-        userBegan = false;
+        clock.reset();
+        clockDisplay.stop();
+        shownTenths = -1;
+        timeDisplay.setText("0");
         isPregame = true;
         gameEnded = true;
+        cancelPreparing();
 
         // Removes previous game and adds a new one
-        mainHolder.getChildren().remove(gameBoardHolder);
+        mainHolder.getChildren().remove(gameBoardArea);
+        if(endless != null){
+            mainHolder.getChildren().remove(endless);
+            closeEndless();
+        }
     }
 
     /**
-     * Creates a gameBoard that holds all the tiles. The gameBoard will be put in a StackPane to allow scrolling
-     * when the gameBoard is too large to fit the screen. The StackPane will be put into the mainHolder in
-     * {@link #newGame(Difficulty)}.
+     * Begins a game on an endless board, which lasts until a bomb is shown. Endless games are not recorded, saved
+     * or counted in the statistics, and the clock starts with the first move.
      */
-    private void generateGameBoard(){
-        gameBoard = new GridPane();
+    private void newEndlessGame(){
+        removeCurrentGame();
+        mainHolder.getChildren().remove(extraHolder);
+        ChunkStore store;
+        try{
+            store = ChunkStore.openDefault();
+        }catch(IOException e){
+            showError("Could not start an endless game: " + e.getMessage());
+            return;
+        }
 
-        int rowAmount = difficulty.getRowsAmount();
-        int columnAmount = difficulty.getColumnsAmount();
+        endlessMode = true;
+        isPaused = false;
+        pauseButton.setText("Pause");
+        difficultyDisplay.setText(ENDLESS);
+        bombsLeftDisplay.setText("Shown: 0");
+        endless = new EndlessView(new EndlessBoard(seeds.nextLong(), store));
+        endless.setOnMoved(this::endlessMoved);
+        endless.setOnFailed(this::endlessFailed);
+        mainHolder.getChildren().add(endless);
+    }
 
-        // Generate rows and columns
-        for(int rowIndex = 0; rowIndex < rowAmount; rowIndex++){
-            RowConstraints row = new RowConstraints(Measurements.tileSide.value());
-            gameBoard.getRowConstraints().add(row);
+    private void endlessMoved(int revealed){
+        EndlessBoard endlessBoard = endless.getBoard();
+        if(!clock.isRunning() && !endlessBoard.isLost()){
+            startClock();
         }
-        for(int columnIndex = 0; columnIndex < columnAmount; columnIndex++){
-            ColumnConstraints column = new ColumnConstraints(Measurements.tileSide.value());
-            gameBoard.getColumnConstraints().add(column);
+        bombsLeftDisplay.setText("Shown: " + endlessBoard.getShownAmount());
+        if(endlessBoard.isLost()){
+            stopClock();
+            String time = GameClock.format(clock.getElapsedMillis());
+            String result = "You showed " + endlessBoard.getShownAmount() + " tiles in " + time + " seconds";
+            Alert alert = new Alert(Alert.AlertType.INFORMATION, result);
+            alert.showAndWait();
         }
+    }
 
-        createTiles();
+    /**
+     * Ends the endless game when its chunks could not be kept, the alert waits until the event is handled since
+     * it can come while the view is laid out
+     */
+    private void endlessFailed(UncheckedIOException e){
+        if(clock.isRunning()) stopClock();
+        Platform.runLater(() -> showError("The endless game had to stop, its chunks could not be kept: "
+                + e.getCause().getMessage()));
+    }
 
-        for(int rowIndex = 0; rowIndex < rowAmount; rowIndex++){
-            for(int columnIndex = 0; columnIndex < columnAmount; columnIndex++){
-                // Don't need values in this case since it is pregame
-                gameBoard.add(gameMatrix[columnIndex][rowIndex], columnIndex, rowIndex);
-            }
+    private void closeEndless(){
+        try{
+            endless.getBoard().close();
+        }catch(IOException e){
+            System.err.println("Could not remove the endless board's chunks: " + e.getMessage());
         }
-
-        gameBoardHolder = new ScrollPane(gameBoard);
-        gameBoardHolder.setPrefSize(Measurements.windowWidth.value(), Measurements.windowHeight.value());
+        endless = null;
     }
 
-    private void createTiles(){
-        int columnsAmount = difficulty.getColumnsAmount();
-        int rowsAmount = difficulty.getRowsAmount();
-
-        // Creates matrix to hold all the bombs, if you want to take the code this line gives the gameplay part
-        gameMatrix = new Tile[columnsAmount][rowsAmount];
-        for(int y = 0; y < rowsAmount; y++) {
-            for(int x = 0; x < columnsAmount; x++) {
-                gameMatrix[x][y] = new Tile(x, y);
-            }
+    /**
+     * Runs the task on the preparer thread and shows its message and progress under the information section
+     * @param then Called on the FX thread once the task is done, unless another game was started first
+     */
+    private void prepare(Task<?> task, Runnable then){
+        cancelPreparing();
+        preparing = task;
+        if(progressPane == null){
+            progressLabel = new Label();
+            progressBar = new ProgressBar();
+            progressBar.setPrefWidth(Measurements.windowWidth.value() / 2);
+            progressPane = new VBox(progressLabel, progressBar);
+            progressPane.setAlignment(Pos.CENTER);
+            progressPane.setSpacing(5);
         }
+        progressLabel.textProperty().bind(task.messageProperty());
+        progressBar.progressProperty().bind(task.progressProperty());
+        mainHolder.getChildren().add(1, progressPane);
+
+        task.setOnSucceeded(event -> {
+            // A task that was dropped for another game may still finish, what it made is thrown away
+            if(preparing != task || task.isCancelled()) return;
+            endPreparing();
+            then.run();
+        });
+        task.setOnFailed(event -> {
+            if(preparing != task) return;
+            endPreparing();
+            removeCurrentGame();
+            showError("Could not prepare the board: " + task.getException());
+        });
+        preparer.execute(task);
     }
 
-    private void setBombs(){
-        Random random = new Random();
-        int bombsCreated = 0;
-        int bombsNeeded = difficulty.getBombsAmount();
+    /**
+     * Drops the board being prepared, its task stops at its next check and the result is thrown away
+     */
+    private void cancelPreparing(){
+        if(preparing == null) return;
+        preparing.cancel();
+        endPreparing();
+    }
 
-        while(bombsCreated != bombsNeeded){
-            int x = random.nextInt(difficulty.getColumnsAmount());
-            int y = random.nextInt(difficulty.getRowsAmount());
+    private void endPreparing(){
+        preparing = null;
+        progressLabel.textProperty().unbind();
+        progressBar.progressProperty().unbind();
+        mainHolder.getChildren().remove(progressPane);
+    }
 
-            Tile tile = gameMatrix[x][y];
+    /**
+     * Creates a gameBoard that draws all the tiles. The gameBoard will be put in a ScrollPane to allow scrolling
+     * when the gameBoard is too large to fit the screen, only the part that can be seen is drawn. Large boards get a
+     * {@link Minimap} over the corner of the ScrollPane. Both are put into the mainHolder in
+     * {@link #newGame(BoardSize)}.
+     * @param newBoard  Empty board for a new game, or a restored one
+     */
+    private void generateGameBoard(Board newBoard){
+        // The board holds the gameplay part, the view only draws it
+        board = newBoard;
 
-            if(tile.isBomb() || isStartLocation(x, y)){
-                continue;
-            }else{
-                tile.setBomb();
-            }
+        gameBoardHolder = new ScrollPane();
+        gameBoardHolder.setPrefSize(Measurements.windowWidth.value(), Measurements.windowHeight.value());
+        gameBoard = new BoardView(board, gameBoardHolder);
+        gameBoard.setOnTileClicked(this::clickedOn);
+        gameBoard.setOnPainted(this::framePainted);
+        gameBoardHolder.setContent(gameBoard);
+        gameBoardArea = new StackPane(gameBoardHolder);
+
+        minimap = null;
+        if(board.getTilesAmount() >= MINIMAP_TILES){
+            minimap = new Minimap(board, gameBoardHolder);
+            gameBoard.setMinimap(minimap);
+            minimap.visibleProperty().bind(gameBoard.visibleProperty());
+            StackPane.setAlignment(minimap, Pos.BOTTOM_RIGHT);
+            // Kept clear of the scroll bars
+            StackPane.setMargin(minimap, new Insets(0, 20, 20, 0));
+            gameBoardArea.getChildren().add(minimap);
+        }
+    }
 
-            bombsCreated++;
+    private BoardPool boardPool(){
+        if(boardPool == null){
+            boardPool = new BoardPool(2);
         }
+        return boardPool;
     }
 
-    private boolean isStartLocation(int x, int y){
-        // Bombs cannot be placed within one tile of these start location
-        int startX = GridPane.getColumnIndex(startingTile);
-        int startY = GridPane.getRowIndex(startingTile);
+    /**
+     * Places the bombs of this game. The seed was picked in {@link #newGame(BoardSize)}, or came from the board pool
+     * when playing without guessing, so the same board comes back from the same board size, seed and first click.
+     */
+    private void setBombs(){
+        placeBombs(board, boardSize, seed, startingIndex);
+        // Worked out while the game is played, so the end of the game only reads it
+        Board placed = board;
+        preparer.execute(placed::getThreeBV);
+    }
 
-        return (Math.abs(x - startX) <= 1 || Math.abs(y - startY) <= 1);
+    /**
+     * Places the bombs and measures how long it took, safe to call from the preparer thread
+     */
+    private void placeBombs(Board target, BoardSize size, long gameSeed, int startIndex){
+        FlightEvents.Generation event = new FlightEvents.Generation();
+        event.begin();
+        long start = System.nanoTime();
+        BoardGenerator.placeBombs(target, size.getBombsAmount(), gameSeed, startIndex);
+        metrics.generation.record((System.nanoTime() - start) / 1e6);
+        event.end();
+        if(event.shouldCommit()){
+            event.rows = size.getRowsAmount();
+            event.columns = size.getColumnsAmount();
+            event.bombs = size.getBombsAmount();
+            event.commit();
+        }
     }
 
     private void lost(){
-        Alert alert = new Alert(Alert.AlertType.INFORMATION, "You lost");
+        stopClock();
+        finishReplay(Replay.LOST);
+        deleteAutosave();
+        stopHeatmap();
+        recordStats(false, board.getThreeBV());
+        board.showBombs();
+        gameBoard.changed();
+        Alert alert = new Alert(Alert.AlertType.INFORMATION, "You lost" + statsText());
         alert.showAndWait();
-        for(Tile[] rows : gameMatrix){
-            for(Tile tile : rows){
-                if(tile.isBomb()){
-                    tile.removeCover();
-                }
-            }
-        }
 
         gameEnded = true;
     }
 
     private void win(){
-        Alert alert = new Alert(Alert.AlertType.INFORMATION, "You won!");
+        stopClock();
+        finishReplay(Replay.WON);
+        deleteAutosave();
+        stopHeatmap();
+        int threeBV = board.getThreeBV();
+        recordStats(true, threeBV);
+        long millis = clock.getElapsedMillis();
+        String speed = String.format("%n3BV: %d, 3BV/s: %.2f", threeBV,
+                StatsStore.getThreeBVPerSecond(threeBV, millis));
+        Alert alert = new Alert(Alert.AlertType.INFORMATION, "You won in " + GameClock.format(millis) + " seconds!"
+                + speed + statsText());
         alert.showAndWait();
 
         gameEnded = true;
     }
 
     /**
-     * The player wins when all tiles are shown and all marked tiles are bombs and all bombs are marked.
-     * Calls {@link #win()} if these conditions are met.
+     * Adds the move to the replay and marks the game as changed since the last autosave
      */
-    private void checkWin(){
-        // Checks if all tiles are shown or are marked correctly, returns if any are false
-        for(Tile[] row : gameMatrix){
-            for(Tile tile : row){
-                // All tiles must be shown or marked
-                if(!tile.isShown() && !tile.isMarked()) return;
-
-                if(tile.isMarked()){
-                    if(!tile.isBomb()){
-                        return;
-                    }
-                }
-            }
+    private void recordMove(int type, int index){
+        unsaved = true;
+        clicks++;
+        if(replay != null){
+            replay.move(type, index, clock.getElapsedMillis());
         }
-
-        win();
     }
 
-    private class Tile extends StackPane {
-        private boolean isBomb = false;
-        private boolean isShown = false;
-        private boolean isMarked = false;
-
-        // Position in the gameBoard and gameMatrix
-        private final int x;
-        private final int y;
-
-        // How big each node should be
-        private double cellSideLength;
-
-        private Rectangle cover;
-        private Label markLabel;
+    /**
+     * Adds the replay of the current game to the archive, games where nothing was clicked are not kept
+     * @param result Replay.ABANDONED, Replay.WON or Replay.LOST
+     */
+    private void finishReplay(byte result){
+        if(replay == null) return;
+        if(opened(replayArchive) != null && replay.getMovesAmount() > 0){
+            opened(replayArchive).append(replay.finish(result, clock.getElapsedMillis()));
+        }
+        replay = null;
+    }
 
-        Tile(int x, int y){
-            // Position
-            this.x = x;
-            this.y = y;
-            
-            // Make the StackPane a square shaped. Each node inside should be square shaped as well.
-            this.setPrefSize(Measurements.tileSide.value(), Measurements.tileSide.value());
-            this.cellSideLength = Measurements.tileSide.value() - 2;
+    private void recordStats(boolean won, int threeBV){
+        if(opened(statsStore) == null) return;
+        opened(statsStore).record(boardSize, won, clock.getElapsedMillis(), clicks, threeBV, seed);
+    }
 
-            generateCover();
+    /**
+     * @return Best time, win rate and streaks for the current board size, empty if statistics are not kept
+     */
+    private String statsText(){
+        if(opened(statsStore) == null) return "";
+        StatsStore.Entry stats = opened(statsStore).get(boardSize);
+        StringBuilder text = new StringBuilder("\n\n");
+        if(stats.getBestMillis() >= 0){
+            text.append("Best time: ").append(GameClock.format(stats.getBestMillis())).append(" seconds\n");
+            long medianMillis = opened(statsStore).getPercentileMillis(boardSize, 50);
+            text.append("Median time: ").append(GameClock.format(medianMillis)).append(" seconds\n");
+        }
+        text.append(String.format("Won %d of %d games (%.1f%%)%n", stats.getWinsAmount(), stats.getGamesAmount(),
+                stats.getWinRate() * 100));
+        if(stats.getBestThreeBVPerSecond() > 0){
+            text.append(String.format("3BV/s: %.2f on average, best %.2f%n", stats.getAverageThreeBVPerSecond(),
+                    stats.getBestThreeBVPerSecond()));
+        }
+        text.append("Streak: ").append(stats.getCurrentStreak()).append(", best: ").append(stats.getBestStreak());
+        return text.toString();
+    }
 
-            this.setOnMouseClicked(this::clickedOn);
+    /**
+     * The player wins when all tiles are shown and all marked tiles are bombs and all bombs are marked.
+     * Calls {@link #win()} if these conditions are met. The board keeps count of this on every move, so nothing
+     * has to be looked through.
+     */
+    private void checkWin(){
+        if(board.isWon()){
+            win();
         }
+    }
 
-        /**
-         * Generates a tile that will cover the bomb node behind it or the emptiness behind it (from no bombs nearby,
-         * hence, there are no numbers). If there should be a number behind, it will be removed and a label will be
-         * created {@link #showNumberLabel()}
-         */
-        private void generateCover(){
-            cover = new Rectangle(cellSideLength, cellSideLength);
-            cover.setFill(Color.web("d9d9d9", 1));
-            this.getChildren().add(cover);
+    private void toggleHeatmap(){
+        showHeatmap = !showHeatmap;
+        if(!showHeatmap){
+            stopHeatmap();
+        }else if(!isPregame && !gameEnded){
+            startHeatmap();
         }
+    }
 
-        /**
-         * When it is pregame, the bomb tiles will be chosen and clears the tile that was clicked on (the first
-         * tile and the surrounding 8 tiles will never be a bomb.
-         *
-         * If it isn't pregame:
-         * Right click means to mark or unmark a tile. A marked tile cannot be left clicked on.
-         * If it is a left click, it will uncover the cover (rectangle on top of the StackPane) and either
-         * show a bomb the user lost or show a label with the amount of nearby bombs. It will also
-         * show any empty tiles (tiles with no bombs nearby) if the one pressed on is an empty tile.
-         * @param event Used to determine right or left click
-         */
-        private void clickedOn(MouseEvent event){
-            // Don't want user clicking things when the game is over
-            if(gameEnded) return;
+    /**
+     * Starts working out the chances for the current game, each finished map is drawn on the FX thread unless the
+     * heatmap was stopped since
+     */
+    private void startHeatmap(){
+        BoardView view = gameBoard;
+        probabilities = new ProbabilityCalculator(board, map -> Platform.runLater(() -> {
+            if(probabilities != null && gameBoard == view) view.setHeatmap(map);
+        }));
+    }
 
-            if(isPregame){
-                startGame();
-            }
-            if((event.getButton().equals(MouseButton.SECONDARY) || event.isShortcutDown()) && !isShown){
-                if(isMarked){
-                    unmark();
-                }else{
-                    mark();
-                }
-            }else if(!isMarked){
-                if(isBomb){
-                    lost();
-                    this.setStyle("-fx-background-color: #ff4;");
-                }else{
-                    showNearbyTiles(this);
-                }
-            }
+    private void stopHeatmap(){
+        if(probabilities == null) return;
+        probabilities.close();
+        probabilities = null;
+        gameBoard.setHeatmap(null);
+    }
+
+    /**
+     * When it is pregame, the bomb tiles will be chosen and clears the tile that was clicked on (the first
+     * tile and the surrounding 8 tiles will never be a bomb.
+     *
+     * If it isn't pregame:
+     * Right click means to mark or unmark a tile. A marked tile cannot be left clicked on.
+     * If it is a left click, it will uncover the tile and either show a bomb the user lost or show the amount
+     * of nearby bombs. It will also show any empty tiles (tiles with no bombs nearby) if the one pressed on is an
+     * empty tile.
+     * @param index Tile that was clicked on
+     * @param event Used to determine right or left click
+     */
+    private void clickedOn(int index, MouseEvent event){
+        clickedOn(index, event.getButton().equals(MouseButton.SECONDARY) || event.isShortcutDown());
+    }
 
-            checkWin();
-        }
-
-        /**
-         * Calls {@link #setBomb()} and updates bombsLeftDisplay to show total bombs created
-         */
-        private void startGame(){
-            startingTile = this;
-            isPregame = false;
-            userBegan = true;
-            setBombs();
-
-            bombAmount = difficulty.getBombsAmount();
-            bombsLeftDisplay.setText(String.valueOf(bombAmount));
-        }
-
-        /**
-         * Adds a "!" ontop of the cover to represent the player thinks there is a bomb.
-         * Will update the information displayed to user as well.
-         * If all tiles are marked and are correct, the user wins
-         */
-        private void mark(){
-            // For the tile
-            isMarked = true;
-            markLabel = new Label("!");
-            markLabel.setTextFill(Color.RED);
-            this.getChildren().add(markLabel);
-
-            // For information section
-            if(bombAmount != 0) bombAmount--;
-            bombsLeftDisplay.setText(String.valueOf(bombAmount));
-        }
-
-        /**
-         * Removes the "!" ontop of the cover.
-         * Will update the information displayed to the user as well.
-         */
-        private void unmark(){
-            // For the tile
-            isMarked = false;
-            this.getChildren().remove(markLabel);
-            markLabel = null;  // So tile can be click and shown again, uncovering looks at if markLabel == null
-
-            // For information section
-            bombAmount++;
-            bombsLeftDisplay.setText(String.valueOf(bombAmount));
-        }
-
-        /**
-         * Removes the cover node and adds a label showing the number from to give an illusion that there is a label
-         * underneath {@link #createNumberLabel(int)}.
-         */
-        private void showNumberLabel(){
-            // Fixes bug of user first action being marked rather than being a left click and having a tile
-            // marked and no way to fix it
-            if(markLabel == null){
-                removeCover();
-                this.getChildren().add(createNumberLabel(numberBombsNearby()));
-                isShown = true;
+    /**
+     * @param marking true for a right click, which marks or unmarks the tile
+     */
+    private void clickedOn(int index, boolean marking){
+        // Don't want user clicking things when the game is over
+        if(gameEnded || preparing != null) return;
+        if(isPregame){
+            int maxBombs = BoardGenerator.maxBombs(board, index);
+            if(boardSize.getBombsAmount() > maxBombs){
+                showError("Only " + maxBombs + " bombs fit when the game starts on this tile, start nearer an edge");
+                return;
             }
         }
+        StartupBenchmark.firstClick();
+
+        if(pendingClick == null){
+            // Clicks before the next frame are all shown by it, it is measured from the first one
+            pendingClick = new FlightEvents.Click();
+            pendingClick.begin();
+            pendingClick.tile = index;
+            pendingClickNanos = System.nanoTime();
+        }
 
-        /**
-         * Gets the amount of bombs surrounding the tile
-         * @return int between 0 and 8
-         */
-        private int numberBombsNearby(){
-            int bombsNearby = 0;
-            for(Tile tile : getSurroundingTiles(this)){
-                if(tile.isBomb()){
-                    bombsNearby++;
+        if(isPregame){
+            if(noGuessing && !boardSize.isCustom()){
+                Long ready = boardPool().poll(boardSize, index);
+                if(ready == null){
+                    startGameWhenReady(index, marking);
+                    return;
                 }
+                seed = ready;
             }
-            return bombsNearby;
-        }
-
-        /**
-         * Recursively shows tiles if they are empty or tile is adjacent to empty one
-         * @param tile  Tile that was clicked on
-         */
-        private void showNearbyTiles(Tile tile){
-            if(tile.isShown){
+            if(boardSize.getTilesAmount() >= PREPARED_TILES){
+                startGameOffThread(index, marking);
                 return;
             }
-            tile.showNumberLabel();
-
-            for(Tile adjacent : getSurroundingTiles(tile)){
-                // Empty tiles will show all surrounding 8 tiles
-                // If there are any empty tiles next the one clicked, the empty tiles should be shown as well
-                // bomb tiles are technically have no bombs nearby, so we need to check that too
-                if(tile.numberBombsNearby() == 0 || (adjacent.numberBombsNearby() == 0 && !adjacent.isBomb)){
-                    showNearbyTiles(adjacent);
-                }
+            startGame(index);
+        }
+        int changesBefore = gameBoard.getChanges().size();
+        if(marking && !board.isShown(index)){
+            if(board.isMarked(index)){
+                recordMove(Replay.UNMARK, index);
+                unmark(index);
+                history.marked(Replay.UNMARK, index);
+            }else{
+                recordMove(Replay.MARK, index);
+                mark(index);
+                history.marked(Replay.MARK, index);
+            }
+        }else if(!board.isMarked(index)){
+            recordMove(Replay.REVEAL, index);
+            long lookupsBefore = board.getNeighbourLookups();
+            int revealed = board.open(index);
+            history.opened(index, revealed);
+            measureReveal(revealed, board.getNeighbourLookups() - lookupsBefore);
+            if(board.isLost()){
+                lost();
             }
         }
+        moved(changesBefore);
+    }
 
-        /**
-         * Returns a list of the eight tiles surrounding the middle tile (input)
-         * @param tile  The middle tile
-         * @return  An array which size can be anywhere between 3 to 8
-         */
-        private Tile[] getSurroundingTiles(Tile tile){
-            ArrayList<Tile> surround = new ArrayList<>();
-            int x = tile.x;
-            int y = tile.y;
-
-            boolean hasUp = y != 0;
-            boolean hasDown = y != difficulty.getRowsAmount() - 1;
-            boolean hasLeft = x != 0;
-            boolean hasRight = x != difficulty.getColumnsAmount() - 1;
-
-            // Bottom 3 tiles
-            if(hasDown){
-                // Down left
-                if(hasLeft){
-                    surround.add(gameMatrix[x - 1][y + 1]);
-                }
-                // Direct down
-                surround.add(gameMatrix[x][y + 1]);
-                // Down right
-                if(hasRight){
-                    surround.add(gameMatrix[x + 1][y + 1]);
-                }
+    /**
+     * Draws a move and checks if it won the game
+     * @param changesBefore Size of the view's batch before the move
+     */
+    private void moved(int changesBefore){
+        // The board recorded every tile this click changed, they are drawn together in the next frame
+        if(probabilities != null){
+            probabilities.update(gameBoard.getChanges(), changesBefore);
+        }else if(showHeatmap && !gameEnded){
+            startHeatmap();
+        }
+        gameBoard.changed();
+        if(gameBoard.getChanges().isEmpty()){
+            // Nothing to draw, or it was drawn while an alert was open
+            framePainted();
+        }
+        checkWin();
+    }
+
+    /**
+     * Takes back the last move, only while the game is being played
+     */
+    private void undo(){
+        if(isPregame || gameEnded || isPaused || preparing != null) return;
+        MoveHistory.Move move = history.undo();
+        if(move != null) historyMoved(Replay.UNDO, move);
+    }
+
+    /**
+     * Makes the last move taken back again
+     */
+    private void redo(){
+        if(isPregame || gameEnded || isPaused || preparing != null) return;
+        MoveHistory.Move move = history.redo();
+        if(move != null) historyMoved(Replay.REDO, move);
+    }
+
+    /**
+     * @param type Replay.UNDO or Replay.REDO
+     */
+    private void historyMoved(int type, MoveHistory.Move move){
+        recordMove(type, move.getTile());
+        bombAmount = Math.max(0, board.getBombsAmount() - board.getMarkedAmount());
+        bombsLeftDisplay.setText(String.valueOf(bombAmount));
+        // The calculator only follows tiles being shown, the chances are worked out again from the board
+        stopHeatmap();
+        moved(gameBoard.getChanges().size());
+    }
+
+    private void measureReveal(int revealed, long lookups){
+        metrics.revealSize.record(revealed);
+        metrics.neighbourLookups.record(lookups);
+        if(pendingClick != null){
+            pendingClick.revealed += revealed;
+            pendingClick.neighbourLookups += lookups;
+        }
+    }
+
+    /**
+     * Ends the click measured since the first click after the last frame
+     */
+    private void framePainted(){
+        if(pendingClick == null) return;
+        metrics.clickToFrame.record((System.nanoTime() - pendingClickNanos) / 1e6);
+        pendingClick.end();
+        if(pendingClick.shouldCommit()) pendingClick.commit();
+        pendingClick = null;
+    }
+
+    private void pulseEnded(){
+        if(pulseEvent == null) return;
+        metrics.pulse.record((System.nanoTime() - pulseStartNanos) / 1e6);
+        pulseEvent.end();
+        if(pulseEvent.shouldCommit()){
+            pulseEvent.nodes = countNodes(mainHolder);
+            pulseEvent.commit();
+        }
+        pulseEvent = null;
+    }
+
+    private void toggleStats(){
+        boolean show = !statsDisplay.isVisible();
+        statsDisplay.setVisible(show);
+        statsDisplay.setManaged(show);
+        if(show){
+            pulseMeter.start();
+            showStats();
+            statsRefresh.play();
+        }else{
+            statsRefresh.stop();
+            if(metricsFile == null) pulseMeter.stop();
+        }
+    }
+
+    private void showStats(){
+        metrics.nodes.record(countNodes(mainHolder));
+        statsDisplay.setText(metrics.summary());
+    }
+
+    private static int countNodes(Node node){
+        int amount = 1;
+        if(node instanceof Parent){
+            for(Node child : ((Parent) node).getChildrenUnmodifiable()){
+                amount += countNodes(child);
             }
+        }
+        return amount;
+    }
 
-            // Left and right
-            if(hasRight){
-                surround.add(gameMatrix[x + 1][y]);
+    /**
+     * Calls {@link #setBombs()} and {@link #beginGame()}
+     */
+    private void startGame(int index){
+        startingIndex = index;
+        setBombs();
+        beginGame();
+    }
+
+    /**
+     * Waits on the preparer thread for the board pool to find a board that needs no guessing for the first click,
+     * then starts the game with it and plays the click
+     */
+    private void startGameWhenReady(int index, boolean marking){
+        BoardPool pool = boardPool();
+        BoardSize size = boardSize;
+        Task<Long> task = new Task<>(){
+            @Override
+            protected Long call() throws InterruptedException {
+                updateMessage("Finding a board that needs no guessing");
+                return pool.take(size, index);
             }
-            if(hasLeft){
-                surround.add(gameMatrix[x - 1][y]);
+        };
+        prepare(task, () -> {
+            seed = task.getValue();
+            if(boardSize.getTilesAmount() >= PREPARED_TILES){
+                startGameOffThread(index, marking);
+                return;
             }
+            startGame(index);
+            clickedOn(index, marking);
+        });
+    }
 
-            // Top 3 tiles
-            if(hasUp){
-                // Top left
-                if(hasLeft){
-                    surround.add(gameMatrix[x - 1][y - 1]);
-                }
-                // Direct up
-                surround.add(gameMatrix[x][y - 1]);
-                // Top right
-                if(hasRight){
-                    surround.add(gameMatrix[x + 1][y - 1]);
-                }
+    /**
+     * Places the bombs and opens the first tile of a large board on the preparer thread. Clicks are ignored until
+     * it is done, then the game starts as it would in {@link #startGame(int)}.
+     * @param marking true if the first click was a right click, the tile is only marked once the bombs are placed
+     */
+    private void startGameOffThread(int index, boolean marking){
+        startingIndex = index;
+        Board target = board;
+        BoardSize size = boardSize;
+        long gameSeed = seed;
+        long lookupsBefore = target.getNeighbourLookups();
+        // The view's batch is only used on this thread, the whole view is drawn again afterwards
+        target.setChanges(null);
+        Task<Integer> task = new Task<>(){
+            @Override
+            protected Integer call(){
+                updateMessage("Placing " + size.getBombsAmount() + " bombs");
+                updateProgress(0, 2);
+                placeBombs(target, size, gameSeed, index);
+                target.getThreeBV();
+                if(isCancelled() || marking) return 0;
+                updateMessage("Opening the first tile");
+                updateProgress(1, 2);
+                return target.open(index);
             }
-            return surround.toArray(new Tile[0]);
-        }
-
-        /**
-         * Removes the rectangle covering what is below
-         */
-        private void removeCover(){
-            this.getChildren().remove(cover);
-        }
-
-        /**
-         * Returns a label with colored text
-         * @param nearbyBombs   Amount of bombs nearby a middle tile. Only numbers zero to eight
-         * @return  Label with a colored number or nothing
-         */
-        private Label createNumberLabel(int nearbyBombs){
-            Label label = new Label();
-            label.setAlignment(Pos.CENTER);
-
-            switch(nearbyBombs){
-                case 1:
-                    label.setText("1");
-                    label.setTextFill(Color.BLUE);
-                    break;
-                case 2:
-                    label.setText("2");
-                    label.setTextFill(Color.GREEN);
-                    break;
-                case 3:
-                    label.setText("3");
-                    label.setTextFill(Color.RED);
-                    break;
-                case 4:
-                    label.setText("4");
-                    label.setTextFill(Color.DARKBLUE);
-                    break;
-                case 5:
-                    label.setText("5");
-                    label.setTextFill(Color.DARKRED);
-                    break;
-                case 6:
-                    label.setText("6");
-                    label.setTextFill(Color.TURQUOISE);
-                    break;
-                case 7:
-                    label.setText("7"); //Color black
-                    break;
-                case 8:
-                    label.setText("8");
-                    label.setTextFill(Color.GRAY);
-                    break;
+        };
+        prepare(task, () -> {
+            target.setChanges(gameBoard.getChanges());
+            beginGame();
+            if(marking){
+                clickedOn(index, true);
+                return;
             }
-            return label;
-        }
+            recordMove(Replay.REVEAL, index);
+            history.opened(index, task.getValue());
+            measureReveal(task.getValue(), target.getNeighbourLookups() - lookupsBefore);
+            gameBoard.repaint();
+            if(minimap != null) minimap.update(target.getOpened(), task.getValue());
+            moved(0);
+        });
+    }
 
-        boolean isBomb() {
-            return isBomb;
-        }
+    /**
+     * Starts the clock and the replay once the bombs are placed, and updates bombsLeftDisplay to show total bombs
+     */
+    private void beginGame(){
+        isPregame = false;
+        replay = new Replay(boardSize, seed, startingIndex);
+        history = MoveHistory.of(board);
+        clicks = 0;
+        startClock();
+        autosave.play();
+
+        bombAmount = boardSize.getBombsAmount();
+        bombsLeftDisplay.setText(String.valueOf(bombAmount));
+    }
 
-        /**
-         * Sets the tile to be a bomb and adds the bomb decal and adds a red rectangle underneath the cover (gray
-         * rectangle) to represent a bomb.
-         */
-        void setBomb() {
-            isBomb = true;
+    /**
+     * Adds a "!" ontop of the cover to represent the player thinks there is a bomb.
+     * Will update the information displayed to user as well.
+     * If all tiles are marked and are correct, the user wins
+     */
+    private void mark(int index){
+        // For the tile
+        board.mark(index);
 
-            // Adds a bomb underneath the cover
-            int coverIndex = this.getChildren().indexOf(cover);
-            this.getChildren().add(coverIndex, new Rectangle(cellSideLength, cellSideLength, Color.RED));
-        }
+        // For information section
+        if(bombAmount != 0) bombAmount--;
+        bombsLeftDisplay.setText(String.valueOf(bombAmount));
+    }
 
-        boolean isMarked() {
-            return isMarked;
-        }
+    /**
+     * Removes the "!" ontop of the cover.
+     * Will update the information displayed to the user as well.
+     */
+    private void unmark(int index){
+        // For the tile
+        board.unmark(index);
 
-        boolean isShown(){
-            return isShown;
-        }
+        // For information section
+        bombAmount++;
+        bombsLeftDisplay.setText(String.valueOf(bombAmount));
     }
 
     public static void main(String[] args){
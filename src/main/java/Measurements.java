@@ -4,7 +4,8 @@ public enum Measurements {
     windowWidth(500),
     windowHeight(450),
     displayHeight(30),
-    tileSide(40);
+    tileSide(40),
+    minimapSide(120);
 
     private final double value;
 
@@ -0,0 +1,110 @@
+package src.main.java;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Counters kept while playing, to see where time goes between a click and the frame that shows it. Each series
+ * keeps its last {@link #WINDOW} values for rolling percentiles, and its count, mean and largest value since the
+ * start.
+ *
+ * The same things are sent as Flight Recorder events ({@link FlightEvents}) for recordings made with
+ * -XX:StartFlightRecording. Starting with -Dminesweeper.metrics=file writes {@link #report()} to the file on exit.
+ */
+public class Metrics {
+    public static final String DUMP_PROPERTY = "minesweeper.metrics";
+    private static final int WINDOW = 1024;
+
+    public final Series clickToFrame = new Series("Click to frame", "ms");
+    public final Series revealSize = new Series("Reveal size", "tiles");
+    public final Series neighbourLookups = new Series("Neighbour lookups", "per click");
+    public final Series generation = new Series("Board generation", "ms");
+    public final Series pulse = new Series("FX pulse", "ms");
+    public final Series nodes = new Series("Scene graph", "nodes");
+
+    private final Series[] all = {clickToFrame, revealSize, neighbourLookups, generation, pulse, nodes};
+
+    /**
+     * @return File to write the metrics to on exit, or null when not asked for
+     */
+    public static Path dumpFile(){
+        String file = System.getProperty(DUMP_PROPERTY);
+        return file == null || file.isEmpty() ? null : Path.of(file);
+    }
+
+    /**
+     * @return One line for each series with its rolling p50 and p99
+     */
+    public String summary(){
+        StringBuilder text = new StringBuilder();
+        for(Series series : all){
+            if(text.length() > 0) text.append('\n');
+            text.append(String.format(Locale.ROOT, "%-18s p50 %8.2f  p99 %8.2f %s", series.name,
+                    series.percentile(50), series.percentile(99), series.unit));
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return Every series with its count, mean, largest value and rolling percentiles
+     */
+    public String report(){
+        StringBuilder text = new StringBuilder("series,unit,count,mean,max,p50,p90,p99\n");
+        for(Series series : all){
+            synchronized(series){
+                text.append(String.format(Locale.ROOT, "%s,%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f%n", series.name,
+                        series.unit, series.count, series.count == 0 ? 0 : series.total / series.count,
+                        series.max, series.percentile(50), series.percentile(90), series.percentile(99)));
+            }
+        }
+        return text.toString();
+    }
+
+    public void write(Path file) throws IOException {
+        Files.writeString(file, report());
+    }
+
+    /**
+     * Values of one measurement, the last ones in a ring
+     */
+    public static final class Series {
+        private final String name;
+        private final String unit;
+        private final double[] window = new double[WINDOW];
+        private long count;
+        private double total;
+        private double max;
+
+        private Series(String name, String unit){
+            this.name = name;
+            this.unit = unit;
+        }
+
+        public synchronized void record(double value){
+            window[(int) (count % WINDOW)] = value;
+            count++;
+            total += value;
+            max = Math.max(max, value);
+        }
+
+        /**
+         * @param percentile 0 to 100
+         * @return Value at the percentile of the last values, 0 before the first
+         */
+        public synchronized double percentile(double percentile){
+            int amount = (int) Math.min(count, WINDOW);
+            if(amount == 0) return 0;
+            double[] sorted = Arrays.copyOf(window, amount);
+            Arrays.sort(sorted);
+            int position = (int) Math.ceil(percentile / 100 * amount) - 1;
+            return sorted[Math.max(0, Math.min(amount - 1, position))];
+        }
+
+        public synchronized long getCount(){
+            return count;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package src.main.java;
+
+import javafx.scene.control.ScrollPane;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+
+import java.util.Arrays;
+
+/**
+ * A small picture of the whole board in one WritableImage, with a frame around the part the ScrollPane shows.
+ * Clicking or dragging on it scrolls the board there.
+ *
+ * Boards with fewer tiles than {@link Measurements#minimapSide} pixels get a few pixels for each tile, larger
+ * boards a block of tiles for each pixel. A block's pixel is the mix of its covered, shown and marked tiles, and
+ * red once a bomb in it is seen. The amount of each kind in every block is kept, along with what the minimap last
+ * knew of every tile in two bits, so {@link #update(ChangeBatch)} only looks at the tiles that changed and only
+ * writes the pixels of their blocks.
+ */
+public class Minimap extends Pane {
+    static final int COVERED = 0;
+    static final int SHOWN = 1;
+    static final int MARKED = 2;
+    static final int BOMB = 3;
+    private static final int[] COLORS = {
+            argb(Color.web("9a9a9a")), argb(Color.web("f4f4f4")), argb(Color.RED), argb(Color.DARKRED)
+    };
+
+    private final Board board;
+    private final ScrollPane holder;
+    private final double tileSide = Measurements.tileSide.value();
+    private final int tilesPerPixel;
+    private final int pixelsPerTile;
+    private final int blockColumns;
+    private final int blockRows;
+    private final WritableImage image;
+    private final PixelWriter pixels;
+    private final Rectangle frame = new Rectangle();
+
+    // Two bits for each tile, what it was the last time the minimap looked
+    private final long[] kinds;
+    // Amount of shown, marked and seen bomb tiles in each block
+    private final int[] shownAmounts;
+    private final int[] markedAmounts;
+    private final int[] bombAmounts;
+    // Blocks to draw again at the end of an update, each only once
+    private final long[] dirty;
+    private int[] dirtyBlocks = new int[64];
+    private int dirtyBlocksAmount;
+
+    /**
+     * @param holder ScrollPane showing the board, scrolled when the minimap is clicked
+     */
+    public Minimap(Board board, ScrollPane holder){
+        this.board = board;
+        this.holder = holder;
+        int side = (int) Measurements.minimapSide.value();
+        int longest = Math.max(board.getColumnsAmount(), board.getRowsAmount());
+        tilesPerPixel = Math.max(1, (longest + side - 1) / side);
+        pixelsPerTile = Math.max(1, side / longest);
+        blockColumns = (board.getColumnsAmount() + tilesPerPixel - 1) / tilesPerPixel;
+        blockRows = (board.getRowsAmount() + tilesPerPixel - 1) / tilesPerPixel;
+
+        kinds = new long[(int) (((long) board.getTilesAmount() + 31) >>> 5)];
+        int blocks = blockColumns * blockRows;
+        shownAmounts = new int[blocks];
+        markedAmounts = new int[blocks];
+        bombAmounts = new int[blocks];
+        dirty = new long[(blocks + 63) >>> 6];
+
+        image = new WritableImage(blockColumns * pixelsPerTile, blockRows * pixelsPerTile);
+        pixels = image.getPixelWriter();
+        for(int block = 0; block < blocks; block++){
+            drawBlock(block);
+        }
+
+        frame.setFill(Color.TRANSPARENT);
+        frame.setStroke(Color.BLUE);
+        frame.setMouseTransparent(true);
+        getChildren().addAll(new ImageView(image), frame);
+        setMaxSize(image.getWidth(), image.getHeight());
+
+        setOnMousePressed(this::jump);
+        setOnMouseDragged(this::jump);
+        holder.hvalueProperty().addListener(observable -> moveFrame());
+        holder.vvalueProperty().addListener(observable -> moveFrame());
+        holder.viewportBoundsProperty().addListener(observable -> moveFrame());
+    }
+
+    /**
+     * Takes in the tiles of the batch, before the batch is cleared
+     */
+    public void update(ChangeBatch changes){
+        for(int i = 0; i < changes.size(); i++){
+            changed(changes.getIndex(i));
+        }
+        drawDirty();
+    }
+
+    /**
+     * Takes in tiles changed while nothing was recorded
+     * @param tiles The first amount of them are used
+     */
+    public void update(int[] tiles, int amount){
+        for(int i = 0; i < amount; i++){
+            changed(tiles[i]);
+        }
+        drawDirty();
+    }
+
+    /**
+     * Looks at every tile of the board, for a board that was not empty when the minimap was made
+     */
+    public void showBoard(){
+        for(int index = 0; index < board.getTilesAmount(); index++){
+            changed(index);
+        }
+        drawDirty();
+    }
+
+    private void changed(int index){
+        int kind = kindOf(board.getState(index));
+        int before = setKind(kinds, index, kind);
+        if(before == kind) return;
+
+        int block = board.getY(index) / tilesPerPixel * blockColumns + board.getX(index) / tilesPerPixel;
+        count(block, before, -1);
+        count(block, kind, 1);
+        if((dirty[block >>> 6] & 1L << block) == 0){
+            dirty[block >>> 6] |= 1L << block;
+            if(dirtyBlocksAmount == dirtyBlocks.length){
+                dirtyBlocks = Arrays.copyOf(dirtyBlocks, dirtyBlocks.length * 2);
+            }
+            dirtyBlocks[dirtyBlocksAmount++] = block;
+        }
+    }
+
+    /**
+     * @return What the minimap draws for a tile in the {@link TileState}
+     */
+    static int kindOf(byte state){
+        if(state == TileState.BOMB || state == TileState.EXPLODED) return BOMB;
+        if(TileState.isNumber(state)) return SHOWN;
+        return state == TileState.MARKED ? MARKED : COVERED;
+    }
+
+    /**
+     * @param kinds Two bits for each tile, 32 tiles in each long
+     * @return Kind of the tile
+     */
+    static int getKind(long[] kinds, int index){
+        return (int) (kinds[index >>> 5] >>> ((index & 31) << 1)) & 3;
+    }
+
+    /**
+     * Puts the kind in the tile's two bits, leaving the other tiles of the long as they were
+     * @return Kind the tile had before
+     */
+    static int setKind(long[] kinds, int index, int kind){
+        int shift = (index & 31) << 1;
+        long word = kinds[index >>> 5];
+        int before = (int) (word >>> shift) & 3;
+        kinds[index >>> 5] = word & ~(3L << shift) | (long) kind << shift;
+        return before;
+    }
+
+    private void count(int block, int kind, int amount){
+        if(kind == SHOWN) shownAmounts[block] += amount;
+        if(kind == MARKED) markedAmounts[block] += amount;
+        if(kind == BOMB) bombAmounts[block] += amount;
+    }
+
+    private void drawDirty(){
+        for(int i = 0; i < dirtyBlocksAmount; i++){
+            int block = dirtyBlocks[i];
+            dirty[block >>> 6] &= ~(1L << block);
+            drawBlock(block);
+        }
+        dirtyBlocksAmount = 0;
+    }
+
+    private void drawBlock(int block){
+        int blockX = block % blockColumns;
+        int blockY = block / blockColumns;
+        int color;
+        if(bombAmounts[block] > 0){
+            color = COLORS[BOMB];
+        }else{
+            int width = Math.min(tilesPerPixel, board.getColumnsAmount() - blockX * tilesPerPixel);
+            int height = Math.min(tilesPerPixel, board.getRowsAmount() - blockY * tilesPerPixel);
+            double tiles = width * height;
+            color = mix(COLORS[COVERED], COLORS[SHOWN], shownAmounts[block] / tiles);
+            color = mix(color, COLORS[MARKED], markedAmounts[block] / tiles);
+        }
+        for(int y = 0; y < pixelsPerTile; y++){
+            for(int x = 0; x < pixelsPerTile; x++){
+                pixels.setArgb(blockX * pixelsPerTile + x, blockY * pixelsPerTile + y, color);
+            }
+        }
+    }
+
+    /**
+     * Puts the frame around the part of the board the ScrollPane shows
+     */
+    private void moveFrame(){
+        double scale = (double) pixelsPerTile / tilesPerPixel / tileSide;
+        double boardWidth = board.getColumnsAmount() * tileSide;
+        double boardHeight = board.getRowsAmount() * tileSide;
+        double viewportWidth = Math.min(boardWidth, holder.getViewportBounds().getWidth());
+        double viewportHeight = Math.min(boardHeight, holder.getViewportBounds().getHeight());
+        double originX = (boardWidth - viewportWidth) * fraction(holder.getHvalue(), holder.getHmin(),
+                holder.getHmax());
+        double originY = (boardHeight - viewportHeight) * fraction(holder.getVvalue(), holder.getVmin(),
+                holder.getVmax());
+        frame.setX(originX * scale);
+        frame.setY(originY * scale);
+        frame.setWidth(Math.max(1, viewportWidth * scale));
+        frame.setHeight(Math.max(1, viewportHeight * scale));
+    }
+
+    /**
+     * Scrolls the board so the point clicked on is in the middle of the ScrollPane
+     */
+    private void jump(MouseEvent event){
+        double scale = (double) pixelsPerTile / tilesPerPixel / tileSide;
+        double boardWidth = board.getColumnsAmount() * tileSide;
+        double boardHeight = board.getRowsAmount() * tileSide;
+        double viewportWidth = holder.getViewportBounds().getWidth();
+        double viewportHeight = holder.getViewportBounds().getHeight();
+        double originX = event.getX() / scale - viewportWidth / 2;
+        double originY = event.getY() / scale - viewportHeight / 2;
+        holder.setHvalue(scrollValue(originX, boardWidth - viewportWidth, holder.getHmin(), holder.getHmax()));
+        holder.setVvalue(scrollValue(originY, boardHeight - viewportHeight, holder.getVmin(), holder.getVmax()));
+        event.consume();
+    }
+
+    private static double fraction(double value, double min, double max){
+        if(max <= min) return 0;
+        return (value - min) / (max - min);
+    }
+
+    private static double scrollValue(double origin, double scrollable, double min, double max){
+        if(scrollable <= 0) return min;
+        return min + (max - min) * Math.max(0, Math.min(1, origin / scrollable));
+    }
+
+    private static int mix(int from, int to, double amount){
+        int mixed = 0xFF000000;
+        for(int shift = 0; shift < 24; shift += 8){
+            int a = from >>> shift & 0xFF;
+            int b = to >>> shift & 0xFF;
+            mixed |= (int) Math.round(a + (b - a) * amount) << shift;
+        }
+        return mixed;
+    }
+
+    private static int argb(Color color){
+        return 0xFF000000 | (int) Math.round(color.getRed() * 255) << 16
+                | (int) Math.round(color.getGreen() * 255) << 8 | (int) Math.round(color.getBlue() * 255);
+    }
+}
@@ -0,0 +1,164 @@
+package src.main.java;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Keeps the moves made on a {@link Board} so they can be taken back and made again. Each move keeps only what it
+ * changed: the tiles an opening showed, or the tile that was marked or unmarked. Taking back an opening covers
+ * those tiles again, making a move again plays it on the board again, which shows the same tiles since the board
+ * is the same as when it was first made.
+ *
+ * The moves that can be taken back hold at most {@link #getMaxTiles()} tiles between them, the oldest are
+ * forgotten first. Making a new move forgets the moves that were taken back.
+ */
+public class MoveHistory {
+    public static final String MAX_TILES_PROPERTY = "minesweeper.history";
+    // 16 MB of tile indexes
+    public static final int DEFAULT_MAX_TILES = 1 << 22;
+
+    private final Board board;
+    private final int maxTiles;
+    private final Deque<Move> done = new ArrayDeque<>();
+    private final Deque<Move> undone = new ArrayDeque<>();
+    private long doneTiles;
+
+    /**
+     * A move and the tiles it showed, if it was an opening
+     */
+    public static final class Move {
+        private final int type;
+        private final int tile;
+        private final int[] shown;
+
+        private Move(int type, int tile, int[] shown){
+            this.type = type;
+            this.tile = tile;
+            this.shown = shown;
+        }
+
+        /**
+         * @return Replay.REVEAL, Replay.MARK or Replay.UNMARK
+         */
+        public int getType(){
+            return type;
+        }
+
+        public int getTile(){
+            return tile;
+        }
+
+        private int getTilesAmount(){
+            return shown == null ? 1 : shown.length;
+        }
+    }
+
+    /**
+     * @param maxTiles Most tiles kept by the moves that can be taken back
+     */
+    public MoveHistory(Board board, int maxTiles){
+        this.board = board;
+        this.maxTiles = Math.max(1, maxTiles);
+    }
+
+    /**
+     * @return History with the limit set by -Dminesweeper.history, or {@link #DEFAULT_MAX_TILES}
+     */
+    public static MoveHistory of(Board board){
+        return new MoveHistory(board, Integer.getInteger(MAX_TILES_PROPERTY, DEFAULT_MAX_TILES));
+    }
+
+    public int getMaxTiles(){
+        return maxTiles;
+    }
+
+    /**
+     * Keeps an opening that was just made on the board
+     * @param amount Returned by {@link Board#open(int)}, the tiles are read from {@link Board#getOpened()}
+     */
+    public void opened(int tile, int amount){
+        if(amount == 0) return;
+        push(new Move(Replay.REVEAL, tile, Arrays.copyOf(board.getOpened(), amount)));
+    }
+
+    /**
+     * Keeps a mark or unmark that was just made on the board
+     * @param type Replay.MARK or Replay.UNMARK
+     */
+    public void marked(int type, int tile){
+        push(new Move(type, tile, null));
+    }
+
+    private void push(Move move){
+        undone.clear();
+        add(move);
+    }
+
+    private void add(Move move){
+        done.addLast(move);
+        doneTiles += move.getTilesAmount();
+        // The newest move is always kept, even when it is larger than the limit
+        while(doneTiles > maxTiles && done.size() > 1){
+            doneTiles -= done.removeFirst().getTilesAmount();
+        }
+    }
+
+    public boolean canUndo(){
+        return !done.isEmpty();
+    }
+
+    public boolean canRedo(){
+        return !undone.isEmpty();
+    }
+
+    /**
+     * Takes back the last move on the board
+     * @return The move taken back, or null if there is none
+     */
+    public Move undo(){
+        Move move = done.pollLast();
+        if(move == null) return null;
+        doneTiles -= move.getTilesAmount();
+        switch(move.type){
+            case Replay.REVEAL:
+                board.cover(move.shown, move.shown.length);
+                break;
+            case Replay.MARK:
+                board.unmark(move.tile);
+                break;
+            case Replay.UNMARK:
+                board.mark(move.tile);
+                break;
+        }
+        // The tiles are found again by the board when the move is made again
+        undone.addLast(new Move(move.type, move.tile, null));
+        return move;
+    }
+
+    /**
+     * Makes the last move taken back again on the board
+     * @return The move made again, or null if there is none
+     */
+    public Move redo(){
+        Move move = undone.pollLast();
+        if(move == null) return null;
+        Move made;
+        switch(move.type){
+            case Replay.REVEAL:
+                int amount = board.open(move.tile);
+                int[] shown = amount == 0 ? new int[0] : Arrays.copyOf(board.getOpened(), amount);
+                made = new Move(move.type, move.tile, shown);
+                break;
+            case Replay.MARK:
+                board.mark(move.tile);
+                made = move;
+                break;
+            default:
+                board.unmark(move.tile);
+                made = move;
+        }
+        add(made);
+        return made;
+    }
+}
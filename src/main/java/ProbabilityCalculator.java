@@ -0,0 +1,739 @@
+package src.main.java;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Works out the chance of a bomb under every covered tile from the numbers the player can see, on a background
+ * thread. Marks are not trusted, a marked tile counts as covered.
+ *
+ * Covered tiles next to a number (the frontier) are split into components: tiles are in the same component when
+ * a number touches both of them. Each component is solved on its own by going through every way its bombs can lie,
+ * counting the ways for each amount of bombs and how often each tile is a bomb. The components are then weighed
+ * together with the covered tiles away from the numbers so the total amount of bombs comes out right.
+ *
+ * After a move only the components next to newly shown tiles are solved again, the others keep their counts, and
+ * solved components are kept by what they look like so a component that comes back is not solved twice. A newer
+ * move stops the work of an older one, and only finished maps are handed to the result consumer.
+ *
+ * Components with too many ways to go through, and boards with too many components to weigh exactly, fall back to
+ * estimates so the map still comes in time.
+ */
+public class ProbabilityCalculator {
+    // Ways looked at in one component before it is estimated instead
+    private static final int MAX_STEPS = 1 << 21;
+    // Larger components are always estimated
+    private static final int MAX_EXACT_TILES = 400;
+    private static final int CANCEL_CHECK_STEPS = 1 << 12;
+    private static final int CACHE_SIZE = 1024;
+    // Largest amount of work for weighing the components together exactly
+    private static final long EXACT_WORK = 1L << 22;
+
+    private final Board board;
+    private final int bombsAmount;
+    private final Consumer<ProbabilityMap> onResult;
+    // One thread works for every calculator, a closed calculator's work left in its queue returns at once
+    private static final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Probabilities");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong latest = new AtomicLong();
+    private volatile boolean closed = false;
+
+    // Only used on the worker thread
+    private final byte[] numbers;  // Bombs nearby for shown tiles, TileState.COVERED for covered tiles
+    private int coveredAmount;
+    private final Map<Integer, Component> componentOf = new HashMap<>();
+    private final Set<Component> components = new HashSet<>();
+    // Tiles whose components must be found again
+    private final Set<Integer> pending = new HashSet<>();
+    private final Map<Signature, Solution> solved = new LinkedHashMap<Signature, Solution>(16, 0.75f, true){
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Signature, Solution> eldest){
+            return size() > CACHE_SIZE;
+        }
+    };
+    private final int[] neighbours = new int[Topology.MAX_DEGREE];
+    private final int[] around = new int[Topology.MAX_DEGREE];
+
+    /**
+     * Copies the board's bitsets and numbers and starts the first map. Must be called on the thread that plays the
+     * board, the tiles are looked through on the worker, which only uses the board for {@link Board#neighbours}.
+     * @param onResult Called on the worker thread with each finished map
+     */
+    public ProbabilityCalculator(Board board, Consumer<ProbabilityMap> onResult){
+        this.board = board;
+        this.bombsAmount = board.getBombsAmount();
+        this.onResult = onResult;
+
+        long[][] bits = board.copyBits();
+        numbers = board.copyBombsNearby();
+
+        long generation = latest.incrementAndGet();
+        worker.execute(() -> {
+            if(closed) return;
+            long[] bombs = bits[0];
+            long[] shown = bits[1];
+            for(int index = 0; index < numbers.length; index++){
+                long bit = 1L << index;
+                if((shown[index >>> 6] & bit) == 0 || (bombs[index >>> 6] & bit) != 0){
+                    numbers[index] = TileState.COVERED;
+                    coveredAmount++;
+                }
+            }
+            for(int index = 0; index < numbers.length; index++){
+                if(numbers[index] > 0 && numbers[index] != TileState.COVERED) addCoveredAround(index);
+            }
+            calculate(generation);
+        });
+    }
+
+    /**
+     * Hands the tiles shown by the last move to the worker
+     * @param from First change of the move in the batch
+     */
+    public void update(ChangeBatch changes, int from){
+        int shownAmount = 0;
+        for(int i = from; i < changes.size(); i++){
+            if(TileState.isNumber(changes.getState(i))) shownAmount++;
+        }
+        if(shownAmount == 0) return;
+
+        int[] tiles = new int[shownAmount];
+        byte[] states = new byte[shownAmount];
+        shownAmount = 0;
+        for(int i = from; i < changes.size(); i++){
+            if(TileState.isNumber(changes.getState(i))){
+                tiles[shownAmount] = changes.getIndex(i);
+                states[shownAmount++] = changes.getState(i);
+            }
+        }
+
+        long generation = latest.incrementAndGet();
+        worker.execute(() -> {
+            if(closed) return;
+            for(int i = 0; i < tiles.length; i++){
+                show(tiles[i], states[i]);
+            }
+            calculate(generation);
+        });
+    }
+
+    /**
+     * Stops the work in flight, no more maps are handed out. The worker thread is kept for the next calculator.
+     */
+    public void close(){
+        closed = true;
+        latest.incrementAndGet();
+    }
+
+    private boolean cancelled(long generation){
+        return generation != latest.get();
+    }
+
+    private void show(int tile, byte number){
+        if(numbers[tile] != TileState.COVERED) return;
+        numbers[tile] = number;
+        coveredAmount--;
+        pending.add(tile);
+        if(number > 0) addCoveredAround(tile);
+    }
+
+    private void addCoveredAround(int tile){
+        int amount = board.neighbours(tile, neighbours);
+        for(int i = 0; i < amount; i++){
+            if(numbers[neighbours[i]] == TileState.COVERED) pending.add(neighbours[i]);
+        }
+    }
+
+    private boolean isConstraint(int tile){
+        return numbers[tile] != TileState.COVERED && numbers[tile] > 0;
+    }
+
+    /**
+     * Finds the components around the pending tiles again, solves them and hands out the new map
+     */
+    private void calculate(long generation){
+        if(cancelled(generation)) return;
+
+        // Components touching a pending tile are found again from all of their tiles
+        for(Integer tile : new ArrayList<>(pending)){
+            Component component = componentOf.get(tile);
+            if(component != null) forget(component);
+        }
+
+        List<Component> found = new ArrayList<>();
+        Set<Integer> visited = new HashSet<>();
+        // Finding a component can forget another one, which adds to pending
+        for(Integer tile : new ArrayList<>(pending)){
+            if(numbers[tile] != TileState.COVERED || visited.contains(tile)) continue;
+            Component component = findComponent(tile, visited);
+            if(component != null) found.add(component);
+        }
+
+        for(Component component : found){
+            component.solution = solve(component, generation);
+            if(component.solution == null) return;  // Stopped, the pending tiles are kept for the next move
+        }
+        for(Component component : found){
+            components.add(component);
+            for(int tile : component.tiles) componentOf.put(tile, component);
+        }
+        pending.clear();
+
+        ProbabilityMap map = combine();
+        if(!cancelled(generation)) onResult.accept(map);
+    }
+
+    private void forget(Component component){
+        components.remove(component);
+        for(int tile : component.tiles){
+            componentOf.remove(tile);
+            pending.add(tile);
+        }
+    }
+
+    /**
+     * Goes from covered tile to number to covered tile until the component has every tile its numbers touch
+     * @return Component of the tile, or null if no number touches it
+     */
+    private Component findComponent(int start, Set<Integer> visited){
+        List<Integer> tiles = new ArrayList<>();
+        List<Integer> constraints = new ArrayList<>();
+        Set<Integer> seenConstraints = new HashSet<>();
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        visited.add(start);
+        queue.add(start);
+
+        while(!queue.isEmpty()){
+            int tile = queue.poll();
+            tiles.add(tile);
+            int amount = board.neighbours(tile, neighbours);
+            for(int i = 0; i < amount; i++){
+                int number = neighbours[i];
+                if(!isConstraint(number) || !seenConstraints.add(number)) continue;
+                constraints.add(number);
+
+                int coveredAmount = board.neighbours(number, around);
+                for(int j = 0; j < coveredAmount; j++){
+                    int covered = around[j];
+                    if(numbers[covered] != TileState.COVERED || !visited.add(covered)) continue;
+                    Component other = componentOf.get(covered);
+                    if(other != null) forget(other);
+                    queue.add(covered);
+                }
+            }
+        }
+        if(constraints.isEmpty()) return null;
+        return new Component(tiles, constraints);
+    }
+
+    /**
+     * @return Solution of the component, or null if a newer move came in
+     */
+    private Solution solve(Component component, long generation){
+        Signature signature = new Signature(component);
+        Solution solution = solved.get(signature);
+        if(solution != null) return solution;
+
+        solution = new Enumeration(component, generation).run();
+        if(solution != null) solved.put(signature, solution);
+        return solution;
+    }
+
+    /**
+     * Weighs the components together. The covered tiles away from the numbers can hold the bombs the components do
+     * not, so an amount of bombs in the components is weighed by the ways the rest fit there.
+     */
+    private ProbabilityMap combine(){
+        List<Component> list = new ArrayList<>(components);
+        int frontierAmount = 0;
+        int total = 0;
+        boolean exact = true;
+        for(Component component : list){
+            frontierAmount += component.tiles.length;
+            total += component.solution.mostBombs();
+            exact &= !component.solution.estimated;
+        }
+        int restAmount = coveredAmount - frontierAmount;
+
+        long work = 0;
+        for(Component component : list){
+            work += (long) (component.solution.mostBombs() + 1) * (total + 1) * 2;
+        }
+        exact &= work <= EXACT_WORK;
+
+        float[][] chances = new float[list.size()][];
+        float restChance = exact ? combineExactly(list, total, restAmount, chances) : Float.NaN;
+        if(Float.isNaN(restChance)){
+            restChance = combineByDensity(list, restAmount, chances);
+        }
+
+        long[] sorted = new long[frontierAmount];
+        int position = 0;
+        for(int c = 0; c < list.size(); c++){
+            int[] tiles = list.get(c).tiles;
+            for(int i = 0; i < tiles.length; i++){
+                sorted[position++] = (long) tiles[i] << 32 | Float.floatToRawIntBits(chances[c][i]) & 0xFFFFFFFFL;
+            }
+        }
+        Arrays.sort(sorted);
+        int[] tiles = new int[frontierAmount];
+        float[] tileChances = new float[frontierAmount];
+        for(int i = 0; i < frontierAmount; i++){
+            tiles[i] = (int) (sorted[i] >>> 32);
+            tileChances[i] = Float.intBitsToFloat((int) sorted[i]);
+        }
+        return new ProbabilityMap(tiles, tileChances, restChance);
+    }
+
+    /**
+     * Every sum is kept as a logarithm, the amount of ways grows past what a double holds on large boards.
+     * Component c is weighed with the components before it (prefix) and after it (after[c + 1]) so each one is
+     * done in one pass.
+     * @return Chance of a bomb away from the numbers, NaN if the numbers cannot all be right
+     */
+    private float combineExactly(List<Component> list, int total, int restAmount, float[][] chances){
+        // rest[m]: ways the other bombs fit away from the numbers when the components hold m bombs
+        double[] rest = new double[total + 1];
+        Arrays.fill(rest, Double.NEGATIVE_INFINITY);
+        int first = Math.max(0, bombsAmount - restAmount);
+        int last = Math.min(total, bombsAmount);
+        if(first <= last) rest[first] = 0;
+        for(int m = first + 1; m <= last; m++){
+            int left = bombsAmount - (m - 1);
+            rest[m] = rest[m - 1] + Math.log(left) - Math.log(restAmount - left + 1);
+        }
+
+        // after[c][m]: ways components c and later fit with the rest when the components before c hold m bombs
+        int amount = list.size();
+        double[][] after = new double[amount + 1][];
+        after[amount] = rest;
+        for(int c = amount - 1; c >= 1; c--){
+            after[c] = convolveAfter(list.get(c).solution.logWays, after[c + 1], total);
+        }
+
+        double[] prefix = new double[total + 1];
+        Arrays.fill(prefix, Double.NEGATIVE_INFINITY);
+        prefix[0] = 0;
+        for(int c = 0; c < amount; c++){
+            Solution solution = list.get(c).solution;
+            double[] weights = convolveAfter(prefix, after[c + 1], total, solution.mostBombs());
+            chances[c] = solution.chances(weights);
+            if(chances[c] == null) return Float.NaN;
+            prefix = convolve(prefix, solution.logWays, total);
+        }
+
+        if(restAmount == 0) return 0;
+        double most = Double.NEGATIVE_INFINITY;
+        for(int m = 0; m <= total; m++){
+            most = Math.max(most, prefix[m] + rest[m]);
+        }
+        if(most == Double.NEGATIVE_INFINITY) return Float.NaN;
+        double ways = 0;
+        double restBombs = 0;
+        for(int m = 0; m <= total; m++){
+            double weight = Math.exp(prefix[m] + rest[m] - most);
+            ways += weight;
+            restBombs += weight * (bombsAmount - m);
+        }
+        return (float) Math.min(1, restBombs / ways / restAmount);
+    }
+
+    /**
+     * @return result[m] = log of the sum over k of ways[k] * next[m + k]
+     */
+    private static double[] convolveAfter(double[] ways, double[] next, int total){
+        return convolveAfter(ways, next, total, total);
+    }
+
+    /**
+     * @return result[m] = log of the sum over a of ways[a] * next[a + m], for m up to most
+     */
+    private static double[] convolveAfter(double[] ways, double[] next, int total, int most){
+        double[] result = new double[Math.min(most, total) + 1];
+        for(int m = 0; m < result.length; m++){
+            double largest = Double.NEGATIVE_INFINITY;
+            for(int a = 0; a < ways.length && a + m <= total; a++){
+                largest = Math.max(largest, ways[a] + next[a + m]);
+            }
+            if(largest == Double.NEGATIVE_INFINITY){
+                result[m] = largest;
+                continue;
+            }
+            double sum = 0;
+            for(int a = 0; a < ways.length && a + m <= total; a++){
+                sum += Math.exp(ways[a] + next[a + m] - largest);
+            }
+            result[m] = largest + Math.log(sum);
+        }
+        return result;
+    }
+
+    /**
+     * @return result[m] = log of the sum over a + k = m of prefix[a] * ways[k]
+     */
+    private static double[] convolve(double[] prefix, double[] ways, int total){
+        double[] result = new double[total + 1];
+        Arrays.fill(result, Double.NEGATIVE_INFINITY);
+        for(int m = 0; m <= total; m++){
+            double largest = Double.NEGATIVE_INFINITY;
+            for(int k = 0; k < ways.length && k <= m; k++){
+                largest = Math.max(largest, prefix[m - k] + ways[k]);
+            }
+            if(largest == Double.NEGATIVE_INFINITY) continue;
+            double sum = 0;
+            for(int k = 0; k < ways.length && k <= m; k++){
+                sum += Math.exp(prefix[m - k] + ways[k] - largest);
+            }
+            result[m] = largest + Math.log(sum);
+        }
+        return result;
+    }
+
+    /**
+     * Estimate for when the components are too many to weigh exactly: every extra bomb in a component is weighed
+     * by the odds of a bomb on a covered tile, which is found again a few times from what the components hold.
+     * @return Chance of a bomb away from the numbers
+     */
+    private float combineByDensity(List<Component> list, int restAmount, float[][] chances){
+        double density = coveredAmount == 0 ? 0 : (double) bombsAmount / coveredAmount;
+        double restChance = density;
+        for(int round = 0; round < 4; round++){
+            double odds = Math.min(1 - 1e-9, Math.max(1e-9, density));
+            double logOdds = Math.log(odds / (1 - odds));
+            double frontierBombs = 0;
+            for(int c = 0; c < list.size(); c++){
+                Solution solution = list.get(c).solution;
+                double[] weights = new double[solution.mostBombs() + 1];
+                for(int k = 0; k < weights.length; k++){
+                    weights[k] = k * logOdds;
+                }
+                chances[c] = solution.chances(weights);
+                if(chances[c] == null) chances[c] = new float[solution.tileAmount];
+                for(float chance : chances[c]) frontierBombs += chance;
+            }
+            restChance = restAmount == 0 ? 0 : Math.min(1, Math.max(0, (bombsAmount - frontierBombs) / restAmount));
+            density = restChance;
+        }
+        return (float) restChance;
+    }
+
+    /**
+     * Covered tiles touched by the same numbers, and those numbers
+     */
+    private final class Component {
+        final int[] tiles;
+        final int[] constraints;
+        // constraintTiles[i]: places in tiles of the covered tiles around constraints[i]
+        final int[][] constraintTiles;
+        Solution solution;
+
+        Component(List<Integer> tileList, List<Integer> constraintList){
+            tiles = tileList.stream().mapToInt(Integer::intValue).sorted().toArray();
+            constraints = constraintList.stream().mapToInt(Integer::intValue).sorted().toArray();
+            constraintTiles = new int[constraints.length][];
+            for(int c = 0; c < constraints.length; c++){
+                int amount = board.neighbours(constraints[c], around);
+                int[] places = new int[amount];
+                int placesAmount = 0;
+                for(int i = 0; i < amount; i++){
+                    if(numbers[around[i]] == TileState.COVERED){
+                        places[placesAmount++] = Arrays.binarySearch(tiles, around[i]);
+                    }
+                }
+                constraintTiles[c] = Arrays.copyOf(places, placesAmount);
+            }
+        }
+
+        int need(int constraint){
+            return numbers[constraints[constraint]];
+        }
+    }
+
+    /**
+     * What a component looks like: its tiles and its numbers with their values. Components that look the same
+     * have the same solution.
+     */
+    private static final class Signature {
+        private final int[] parts;
+        private final int hash;
+
+        Signature(Component component){
+            parts = new int[1 + component.tiles.length + component.constraints.length * 2];
+            int position = 0;
+            parts[position++] = component.tiles.length;
+            for(int tile : component.tiles) parts[position++] = tile;
+            for(int c = 0; c < component.constraints.length; c++){
+                parts[position++] = component.constraints[c];
+                parts[position++] = component.need(c);
+            }
+            hash = Arrays.hashCode(parts);
+        }
+
+        @Override
+        public boolean equals(Object other){
+            return other instanceof Signature && Arrays.equals(parts, ((Signature) other).parts);
+        }
+
+        @Override
+        public int hashCode(){
+            return hash;
+        }
+    }
+
+    /**
+     * Ways a component's bombs can lie, by amount of bombs. Estimated solutions only know each tile's chance.
+     */
+    private static final class Solution {
+        final int tileAmount;
+        final boolean estimated;
+        // log of the ways with k bombs
+        final double[] logWays;
+        // ways[k] and tileWays[k * tileAmount + i]: ways with k bombs, and of those the ways tile i is a bomb
+        final double[] ways;
+        final double[] tileWays;
+        final float[] estimate;
+
+        Solution(int tileAmount, double[] ways, double[] tileWays){
+            this.tileAmount = tileAmount;
+            this.estimated = false;
+            this.ways = ways;
+            this.tileWays = tileWays;
+            this.estimate = null;
+            logWays = new double[ways.length];
+            for(int k = 0; k < ways.length; k++){
+                logWays[k] = Math.log(ways[k]);
+            }
+        }
+
+        Solution(float[] estimate){
+            this.tileAmount = estimate.length;
+            this.estimated = true;
+            this.estimate = estimate;
+            this.ways = null;
+            this.tileWays = null;
+            // Only the expected amount of bombs is known, all of it is put on the nearest amount
+            double bombs = 0;
+            for(float chance : estimate) bombs += chance;
+            logWays = new double[(int) Math.round(bombs) + 1];
+            Arrays.fill(logWays, Double.NEGATIVE_INFINITY);
+            logWays[logWays.length - 1] = 0;
+        }
+
+        int mostBombs(){
+            return logWays.length - 1;
+        }
+
+        /**
+         * @param logWeights log of the weight of each amount of bombs
+         * @return Chance of a bomb on each tile, or null if no amount of bombs has any weight
+         */
+        float[] chances(double[] logWeights){
+            if(estimated) return estimate;
+            double largest = Double.NEGATIVE_INFINITY;
+            for(int k = 0; k < ways.length && k < logWeights.length; k++){
+                if(ways[k] > 0) largest = Math.max(largest, logWeights[k]);
+            }
+            if(largest == Double.NEGATIVE_INFINITY) return null;
+
+            double all = 0;
+            double[] bombs = new double[tileAmount];
+            for(int k = 0; k < ways.length && k < logWeights.length; k++){
+                if(ways[k] == 0) continue;
+                double weight = Math.exp(logWeights[k] - largest);
+                all += ways[k] * weight;
+                for(int i = 0; i < tileAmount; i++){
+                    bombs[i] += tileWays[k * tileAmount + i] * weight;
+                }
+            }
+            float[] chances = new float[tileAmount];
+            for(int i = 0; i < tileAmount; i++){
+                chances[i] = (float) (bombs[i] / all);
+            }
+            return chances;
+        }
+    }
+
+    /**
+     * Goes through every way the bombs of a component can lie, one tile at a time in an order where each tile is
+     * next to the ones before it, so numbers are filled in early and wrong ways are dropped early.
+     */
+    private final class Enumeration {
+        private final Component component;
+        private final long generation;
+        private final int tileAmount;
+        private final int[] order;
+        // tileConstraints[i]: constraints touching tile i
+        private final int[][] tileConstraints;
+        private final int[] bombsPlaced;
+        private final int[] tilesLeft;
+        private final boolean[] bomb;
+        private final double[] ways;
+        private final double[] tileWays;
+        private int bombsAmount;
+        private long steps;
+        private boolean stopped;
+
+        Enumeration(Component component, long generation){
+            this.component = component;
+            this.generation = generation;
+            tileAmount = component.tiles.length;
+
+            int[] constraintsAmount = new int[tileAmount];
+            for(int[] places : component.constraintTiles){
+                for(int place : places) constraintsAmount[place]++;
+            }
+            tileConstraints = new int[tileAmount][];
+            for(int i = 0; i < tileAmount; i++){
+                tileConstraints[i] = new int[constraintsAmount[i]];
+                constraintsAmount[i] = 0;
+            }
+            for(int c = 0; c < component.constraintTiles.length; c++){
+                for(int place : component.constraintTiles[c]){
+                    tileConstraints[place][constraintsAmount[place]++] = c;
+                }
+            }
+
+            order = orderTiles();
+            bombsPlaced = new int[component.constraints.length];
+            tilesLeft = new int[component.constraints.length];
+            for(int c = 0; c < tilesLeft.length; c++){
+                tilesLeft[c] = component.constraintTiles[c].length;
+            }
+            bomb = new boolean[tileAmount];
+            ways = new double[tileAmount + 1];
+            tileWays = new double[tileAmount > MAX_EXACT_TILES ? 0 : (tileAmount + 1) * tileAmount];
+        }
+
+        /**
+         * @return Solution, an estimate if there were too many ways, or null if a newer move came in
+         */
+        Solution run(){
+            if(tileAmount > MAX_EXACT_TILES) return new Solution(estimate());
+            if(fits()) place(0);
+            if(cancelled(generation)) return null;
+            if(stopped) return new Solution(estimate());
+
+            int most = tileAmount;
+            while(most > 0 && ways[most] == 0) most--;
+            return new Solution(tileAmount, Arrays.copyOf(ways, most + 1),
+                    Arrays.copyOf(tileWays, (most + 1) * tileAmount));
+        }
+
+        private void place(int position){
+            if(stopped) return;
+            if(++steps % CANCEL_CHECK_STEPS == 0 && (steps > MAX_STEPS || cancelled(generation))){
+                stopped = true;
+                return;
+            }
+            if(position == tileAmount){
+                ways[bombsAmount]++;
+                int offset = bombsAmount * tileAmount;
+                for(int i = 0; i < tileAmount; i++){
+                    if(bomb[i]) tileWays[offset + i]++;
+                }
+                return;
+            }
+
+            int tile = order[position];
+            for(int constraint : tileConstraints[tile]) tilesLeft[constraint]--;
+
+            if(fitsTile(tile)) place(position + 1);
+
+            bomb[tile] = true;
+            bombsAmount++;
+            for(int constraint : tileConstraints[tile]) bombsPlaced[constraint]++;
+            if(fitsTile(tile)) place(position + 1);
+            for(int constraint : tileConstraints[tile]) bombsPlaced[constraint]--;
+            bombsAmount--;
+            bomb[tile] = false;
+
+            for(int constraint : tileConstraints[tile]) tilesLeft[constraint]++;
+        }
+
+        private boolean fits(){
+            for(int c = 0; c < bombsPlaced.length; c++){
+                if(!fits(c)) return false;
+            }
+            return true;
+        }
+
+        private boolean fitsTile(int tile){
+            for(int constraint : tileConstraints[tile]){
+                if(!fits(constraint)) return false;
+            }
+            return true;
+        }
+
+        private boolean fits(int constraint){
+            int need = component.need(constraint);
+            return bombsPlaced[constraint] <= need && bombsPlaced[constraint] + tilesLeft[constraint] >= need;
+        }
+
+        /**
+         * Breadth first through shared numbers, starting from the first tile
+         */
+        private int[] orderTiles(){
+            int[] result = new int[tileAmount];
+            boolean[] added = new boolean[tileAmount];
+            int head = 0;
+            int size = 0;
+            for(int start = 0; start < tileAmount; start++){
+                if(added[start]) continue;
+                added[start] = true;
+                result[size++] = start;
+                while(head < size){
+                    int tile = result[head++];
+                    for(int constraint : tileConstraints[tile]){
+                        for(int next : component.constraintTiles[constraint]){
+                            if(!added[next]){
+                                added[next] = true;
+                                result[size++] = next;
+                            }
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Spreads each number's bombs over its tiles and scales the chances until every number roughly adds up
+         */
+        private float[] estimate(){
+            double[] chances = new double[tileAmount];
+            Arrays.fill(chances, 0.5);
+            for(int round = 0; round < 16; round++){
+                for(int c = 0; c < component.constraints.length; c++){
+                    int[] places = component.constraintTiles[c];
+                    double sum = 0;
+                    for(int place : places) sum += chances[place];
+                    if(sum == 0) continue;
+                    double scale = component.need(c) / sum;
+                    for(int place : places){
+                        chances[place] = Math.min(1, chances[place] * scale);
+                    }
+                }
+            }
+            float[] result = new float[tileAmount];
+            for(int i = 0; i < tileAmount; i++){
+                result[i] = (float) chances[i];
+            }
+            return result;
+        }
+    }
+}
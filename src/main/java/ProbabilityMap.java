@@ -0,0 +1,41 @@
+package src.main.java;
+
+import java.util.Arrays;
+
+/**
+ * Chance of a bomb under every covered tile, made by {@link ProbabilityCalculator}. Tiles next to a number are
+ * kept in order of index with their own chance, every other covered tile shares the same chance.
+ */
+public final class ProbabilityMap {
+    private final int[] tiles;
+    private final float[] chances;
+    private final float restChance;
+
+    ProbabilityMap(int[] tiles, float[] chances, float restChance){
+        this.tiles = tiles;
+        this.chances = chances;
+        this.restChance = restChance;
+    }
+
+    /**
+     * @return Chance of a bomb under the covered tile, 0 to 1
+     */
+    public float get(int index){
+        int position = Arrays.binarySearch(tiles, index);
+        return position >= 0 ? chances[position] : restChance;
+    }
+
+    /**
+     * @return Chance of a bomb under covered tiles that are not next to a number
+     */
+    public float getRestChance(){
+        return restChance;
+    }
+
+    /**
+     * @return Amount of covered tiles next to a number
+     */
+    public int getFrontierAmount(){
+        return tiles.length;
+    }
+}
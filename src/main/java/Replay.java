@@ -0,0 +1,143 @@
+package src.main.java;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Records one game as a compact binary replay. The board comes back from its size, seed and first click
+ * ({@link BoardGenerator}), so only those and the moves are kept.
+ *
+ * A replay is:
+ *   byte       difficulty ordinal, or CUSTOM followed by varint rows, columns and bombs
+ *   long       seed
+ *   varint     first click, the tile the bombs were placed around
+ *   byte       result, one of ABANDONED, WON or LOST
+ *   varint     milliseconds played
+ *   varint     amount of moves
+ *   moves      varint (tile << 3 | move type), varint milliseconds since the move before
+ *
+ * UNDO and REDO moves take back or make again a move before them ({@link MoveHistory}), their tile is the tile
+ * of that move.
+ *
+ * Varints are unsigned with 7 bits in each byte, lowest first. Every move is kept, including the first click.
+ */
+public class Replay {
+    public static final byte CUSTOM = (byte) 0xFF;
+
+    public static final byte ABANDONED = 0;
+    public static final byte WON = 1;
+    public static final byte LOST = 2;
+
+    public static final int REVEAL = 0;
+    public static final int MARK = 1;
+    public static final int UNMARK = 2;
+    public static final int UNDO = 3;
+    public static final int REDO = 4;
+    // Move types take three bits
+    public static final int MOVE_TYPE_BITS = 3;
+    public static final int MOVE_TYPE_MASK = (1 << MOVE_TYPE_BITS) - 1;
+
+    private final BoardSize size;
+    private final long seed;
+    private final int firstClick;
+
+    private byte[] moves = new byte[64];
+    private int movesLength;
+    private int movesAmount;
+    private long lastMoveMillis;
+
+    /**
+     * Starts recording a game
+     * @param firstClick Tile the bombs were placed around
+     */
+    public Replay(BoardSize size, long seed, int firstClick){
+        this.size = size;
+        this.seed = seed;
+        this.firstClick = firstClick;
+    }
+
+    /**
+     * @param type         REVEAL, MARK, UNMARK, UNDO or REDO
+     * @param elapsedMillis Time played when the move was made
+     */
+    public void move(int type, int tile, long elapsedMillis){
+        ensureRoom(10);
+        movesLength = writeVarint(moves, movesLength, tile << MOVE_TYPE_BITS | type);
+        movesLength = writeVarint(moves, movesLength, (int) Math.max(0, elapsedMillis - lastMoveMillis));
+        lastMoveMillis = Math.max(lastMoveMillis, elapsedMillis);
+        movesAmount++;
+    }
+
+    public int getMovesAmount(){
+        return movesAmount;
+    }
+
+    /**
+     * @param result ABANDONED, WON or LOST
+     * @return The whole replay
+     */
+    public byte[] finish(byte result, long elapsedMillis){
+        byte[] header = new byte[1 + 3 * 5 + 8 + 5 + 1 + 5 + 5];
+        int length = 0;
+        if(size.isCustom()){
+            header[length++] = CUSTOM;
+            length = writeVarint(header, length, size.getRowsAmount());
+            length = writeVarint(header, length, size.getColumnsAmount());
+            length = writeVarint(header, length, size.getBombsAmount());
+        }else{
+            header[length++] = (byte) size.getDifficulty().ordinal();
+        }
+        ByteBuffer.wrap(header, length, 8).putLong(seed);
+        length += 8;
+        length = writeVarint(header, length, firstClick);
+        header[length++] = result;
+        length = writeVarint(header, length, (int) Math.min(Integer.MAX_VALUE, elapsedMillis));
+        length = writeVarint(header, length, movesAmount);
+
+        byte[] replay = Arrays.copyOf(header, length + movesLength);
+        System.arraycopy(moves, 0, replay, length, movesLength);
+        return replay;
+    }
+
+    private void ensureRoom(int bytes){
+        if(movesLength + bytes > moves.length){
+            moves = Arrays.copyOf(moves, Math.max(moves.length * 2, movesLength + bytes));
+        }
+    }
+
+    /**
+     * @return Position after the varint
+     */
+    static int writeVarint(byte[] into, int position, int value){
+        while((value & ~0x7F) != 0){
+            into[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        into[position++] = (byte) value;
+        return position;
+    }
+
+    static int readVarint(ByteBuffer from){
+        int value = 0;
+        int shift = 0;
+        while(true){
+            byte part = from.get();
+            value |= (part & 0x7F) << shift;
+            if(part >= 0) return value;
+            shift += 7;
+        }
+    }
+
+    /**
+     * Reads the board size at the start of a replay
+     */
+    static BoardSize readSize(ByteBuffer from){
+        byte code = from.get();
+        if(code == CUSTOM){
+            int rows = readVarint(from);
+            int columns = readVarint(from);
+            return BoardSize.custom(rows, columns, readVarint(from));
+        }
+        return BoardSize.of(Difficulty.values()[code]);
+    }
+}
@@ -0,0 +1,119 @@
+package src.main.java;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * File of {@link Replay}s, one after another, each after its length as an int. The file starts with "MSRP" and a
+ * version byte. Replays are written on a background thread. When the file would pass its largest size it is
+ * moved to a ".1" file, which replaces the one before, and a new file is started.
+ */
+public class ReplayArchive {
+    public static final String FILE_NAME = "replays.bin";
+    private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    private static final byte[] MAGIC = {'M', 'S', 'R', 'P'};
+    private static final byte VERSION = 1;
+
+    private final Path file;
+    private final long maxBytes;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Replay writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ReplayArchive(Path file, long maxBytes){
+        this.file = file;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return Archive in the {@link DataDirectory}
+     */
+    public static ReplayArchive openDefault() throws IOException {
+        return new ReplayArchive(DataDirectory.resolve(FILE_NAME), DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Adds the replay to the end of the file on the writer thread
+     */
+    public void append(byte[] replay){
+        writer.execute(() -> {
+            try{
+                write(replay);
+            }catch(IOException e){
+                System.err.println("Could not save replay: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Waits for the replays that are still being written
+     */
+    public void close() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void write(byte[] replay) throws IOException {
+        if(Files.exists(file) && Files.size(file) + Integer.BYTES + replay.length > maxBytes){
+            Path rolled = file.resolveSibling(file.getFileName() + ".1");
+            Files.move(file, rolled, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)){
+            ByteBuffer buffer = ByteBuffer.allocate(MAGIC.length + 1 + Integer.BYTES + replay.length);
+            if(channel.size() == 0){
+                buffer.put(MAGIC).put(VERSION);
+            }
+            buffer.putInt(replay.length).put(replay).flip();
+            while(buffer.hasRemaining()){
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Maps the whole archive into memory
+     * @return Buffer placed at the first replay
+     * @throws IOException if the file is not a replay archive
+     */
+    public static ByteBuffer map(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            ByteBuffer archive = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            for(byte expected : MAGIC){
+                if(!archive.hasRemaining() || archive.get() != expected){
+                    throw new IOException(file + " is not a replay archive");
+                }
+            }
+            if(!archive.hasRemaining() || archive.get() != VERSION){
+                throw new IOException(file + " has an unknown version");
+            }
+            return archive;
+        }
+    }
+
+    /**
+     * Moves the archive past the next replay
+     * @return The next replay, or null at the end of the archive or at a replay that was only partly written
+     */
+    public static ByteBuffer next(ByteBuffer archive){
+        if(archive.remaining() < Integer.BYTES) return null;
+        int length = archive.getInt();
+        if(length < 0 || length > archive.remaining()) return null;
+
+        ByteBuffer replay = archive.slice();
+        replay.limit(length);
+        archive.position(archive.position() + length);
+        return replay;
+    }
+}
@@ -0,0 +1,125 @@
+package src.main.java;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Plays {@link Replay}s again on a headless {@link Board} and checks each one ends the way it was recorded.
+ * One board is kept for each size and reused, so playing moves does not make new objects.
+ *
+ * Run with: java -cp target/classes src.main.java.ReplayPlayer [archive] [times]
+ */
+public class ReplayPlayer {
+    private final Map<BoardSize, Board> boards = new HashMap<>();
+    private Board board;
+    private long movesPlayed;
+
+    public static void main(String[] args) throws IOException {
+        Path file = args.length > 0 ? Paths.get(args[0]) : DataDirectory.resolve(ReplayArchive.FILE_NAME);
+        int times = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+        ByteBuffer archive = ReplayArchive.map(file);
+        int start = archive.position();
+        ReplayPlayer player = new ReplayPlayer();
+        long replays = 0;
+        long mismatches = 0;
+
+        long startNanos = System.nanoTime();
+        for(int time = 0; time < times; time++){
+            archive.position(start);
+            ByteBuffer replay;
+            while((replay = ReplayArchive.next(archive)) != null){
+                replays++;
+                if(!player.play(replay)){
+                    mismatches++;
+                    if(time == 0) System.out.println("Replay " + replays + " did not end the way it was recorded");
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+        System.out.printf("%d replays, %d moves, %d mismatches, %.0f replays/s, %.0f moves/s%n",
+                replays, player.movesPlayed, mismatches, replays / seconds, player.movesPlayed / seconds);
+    }
+
+    /**
+     * Makes the board again and plays every move of the replay
+     * @return true if the game ended the way it was recorded
+     */
+    public boolean play(ByteBuffer replay){
+        BoardSize size = Replay.readSize(replay);
+        long seed = replay.getLong();
+        int firstClick = Replay.readVarint(replay);
+        byte result = replay.get();
+        Replay.readVarint(replay);  // Milliseconds played
+        int movesAmount = Replay.readVarint(replay);
+
+        board = boards.get(size);
+        if(board == null){
+            board = new Board(size.getRowsAmount(), size.getColumnsAmount());
+            boards.put(size, board);
+        }else{
+            board.clear();
+        }
+        BoardGenerator.placeBombs(board, size.getBombsAmount(), seed, firstClick);
+        // Only games where a move was taken back need the history
+        MoveHistory history = hasUndo(replay, movesAmount) ? new MoveHistory(board, Integer.MAX_VALUE) : null;
+
+        for(int i = 0; i < movesAmount; i++){
+            int move = Replay.readVarint(replay);
+            Replay.readVarint(replay);  // Milliseconds since the move before
+            int tile = move >>> Replay.MOVE_TYPE_BITS;
+            int type = move & Replay.MOVE_TYPE_MASK;
+            switch(type){
+                case Replay.REVEAL:
+                    int amount = board.open(tile);
+                    if(history != null) history.opened(tile, amount);
+                    break;
+                case Replay.MARK:
+                case Replay.UNMARK:
+                    if(type == Replay.MARK) board.mark(tile); else board.unmark(tile);
+                    if(history != null) history.marked(type, tile);
+                    break;
+                case Replay.UNDO:
+                    history.undo();
+                    break;
+                case Replay.REDO:
+                    history.redo();
+                    break;
+            }
+        }
+        movesPlayed += movesAmount;
+
+        switch(result){
+            case Replay.WON:
+                return board.isWon();
+            case Replay.LOST:
+                return board.isLost();
+            default:
+                return !board.isWon() && !board.isLost();
+        }
+    }
+
+    /**
+     * Looks through the moves for an UNDO or REDO and leaves the replay where it was
+     */
+    private static boolean hasUndo(ByteBuffer replay, int movesAmount){
+        int start = replay.position();
+        boolean found = false;
+        for(int i = 0; i < movesAmount && !found; i++){
+            int type = Replay.readVarint(replay) & Replay.MOVE_TYPE_MASK;
+            Replay.readVarint(replay);
+            found = type == Replay.UNDO || type == Replay.REDO;
+        }
+        replay.position(start);
+        return found;
+    }
+
+    public Board getBoard(){
+        return board;
+    }
+}
@@ -0,0 +1,183 @@
+package src.main.java;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Everything needed to carry on with a game: the board size, seed, first click, time played and the bombs, shown
+ * and marked bitsets of the {@link Board}. The amount of bombs nearby each tile is worked out again when loading.
+ * A saved game read from a file only has its header at first, the bitsets are read by {@link #toBoard()}, which
+ * can be called on another thread.
+ *
+ * The file is a 40 byte header followed by the three bitsets as big endian longs:
+ *   "MSSV", version, difficulty ordinal (or -1 when custom), rows, columns, bombs, seed, first click, milliseconds
+ */
+public class SavedGame {
+    public static final String FILE_NAME = "autosave.bin";
+    private static final byte[] MAGIC = {'M', 'S', 'S', 'V'};
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+    private static final byte CUSTOM = -1;
+
+    private final BoardSize size;
+    private final long seed;
+    private final int startingIndex;
+    private final long elapsedMillis;
+    // File the bitsets are read from, null when they are already kept
+    private final Path file;
+    private final long[] bombs;
+    private final long[] shown;
+    private final long[] marked;
+
+    private SavedGame(BoardSize size, long seed, int startingIndex, long elapsedMillis, Path file,
+                      long[] bombs, long[] shown, long[] marked){
+        this.size = size;
+        this.seed = seed;
+        this.startingIndex = startingIndex;
+        this.elapsedMillis = elapsedMillis;
+        this.file = file;
+        this.bombs = bombs;
+        this.shown = shown;
+        this.marked = marked;
+    }
+
+    /**
+     * Copies the state of the game, so the copy can be written on another thread while the game goes on
+     */
+    public static SavedGame of(Board board, BoardSize size, long seed, int startingIndex, long elapsedMillis){
+        long[][] bits = board.copyBits();
+        return new SavedGame(size, seed, startingIndex, elapsedMillis, null, bits[0], bits[1], bits[2]);
+    }
+
+    /**
+     * Makes the board again, reading the bitsets from the file first if only the header was read. The bitsets of
+     * a copied game are owned by the board afterwards. Large boards take a while, so this is best kept off the FX
+     * thread.
+     * @throws IOException if the file can no longer be read
+     */
+    public Board toBoard() throws IOException {
+        if(file == null){
+            return Board.fromBits(size.getRowsAmount(), size.getColumnsAmount(), bombs, shown, marked);
+        }
+        int words = Board.getWordsAmount(size.getTilesAmount());
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            if(channel.size() != HEADER_BYTES + 3L * words * Long.BYTES){
+                throw new IOException(file + " is not complete");
+            }
+            LongBuffer longs = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, channel.size() - HEADER_BYTES)
+                    .asLongBuffer();
+            long[] bombs = new long[words];
+            long[] shown = new long[words];
+            long[] marked = new long[words];
+            longs.get(bombs).get(shown).get(marked);
+            return Board.fromBits(size.getRowsAmount(), size.getColumnsAmount(), bombs, shown, marked);
+        }
+    }
+
+    public BoardSize getSize(){
+        return size;
+    }
+
+    public long getSeed(){
+        return seed;
+    }
+
+    public int getStartingIndex(){
+        return startingIndex;
+    }
+
+    public long getElapsedMillis(){
+        return elapsedMillis;
+    }
+
+    /**
+     * Writes to a file next to the given one and then moves it over, so a crash never leaves half a save behind
+     */
+    public void write(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)){
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.put(MAGIC).put(VERSION);
+            header.put(size.isCustom() ? CUSTOM : (byte) size.getDifficulty().ordinal());
+            header.putShort((short) 0);  // Keeps the numbers after it lined up
+            header.putInt(size.getRowsAmount()).putInt(size.getColumnsAmount()).putInt(size.getBombsAmount());
+            header.putLong(seed).putInt(startingIndex).putLong(elapsedMillis);
+            header.flip();
+            writeFully(channel, header);
+
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            writeLongs(channel, bombs, buffer);
+            writeLongs(channel, shown, buffer);
+            writeLongs(channel, marked, buffer);
+            channel.force(false);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads only the header of a saved game, the bitsets are read later by {@link #toBoard()} by mapping the file
+     * into memory and copying each bitset out in one go
+     * @throws IOException if the file is not a saved game
+     */
+    public static SavedGame readHeader(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            if(channel.size() < HEADER_BYTES) throw new IOException(file + " is not a saved game");
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while(header.hasRemaining()){
+                if(channel.read(header) < 0) throw new IOException(file + " is not a saved game");
+            }
+            header.flip();
+
+            for(byte expected : MAGIC){
+                if(header.get() != expected) throw new IOException(file + " is not a saved game");
+            }
+            if(header.get() != VERSION) throw new IOException(file + " has an unknown version");
+            byte difficulty = header.get();
+            header.getShort();
+            int rows = header.getInt();
+            int columns = header.getInt();
+            int bombsAmount = header.getInt();
+            long seed = header.getLong();
+            int startingIndex = header.getInt();
+            long elapsedMillis = header.getLong();
+
+            BoardSize size;
+            try{
+                size = difficulty == CUSTOM ? BoardSize.custom(rows, columns, bombsAmount)
+                        : BoardSize.of(Difficulty.values()[difficulty]);
+            }catch(IllegalArgumentException | ArrayIndexOutOfBoundsException e){
+                throw new IOException(file + " has a board that cannot be made", e);
+            }
+
+            int words = Board.getWordsAmount(size.getTilesAmount());
+            if(channel.size() != HEADER_BYTES + 3L * words * Long.BYTES){
+                throw new IOException(file + " is not complete");
+            }
+            return new SavedGame(size, seed, startingIndex, elapsedMillis, file, null, null, null);
+        }
+    }
+
+    private static void writeLongs(FileChannel channel, long[] words, ByteBuffer buffer) throws IOException {
+        int perBuffer = buffer.capacity() / Long.BYTES;
+        for(int start = 0; start < words.length; start += perBuffer){
+            int amount = Math.min(perBuffer, words.length - start);
+            buffer.clear();
+            buffer.asLongBuffer().put(words, start, amount);
+            buffer.limit(amount * Long.BYTES);
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+    }
+}
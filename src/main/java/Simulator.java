@@ -0,0 +1,102 @@
+package src.main.java;
+
+import java.util.stream.IntStream;
+
+/**
+ * Plays many seeded games with the {@link Solver} on every core and reports how often it wins on each
+ * {@link Difficulty}, the average 3BV of the boards and how much 3BV was played each second. Game number i on a
+ * difficulty always uses seed + i, so a run can be repeated exactly.
+ *
+ * Run with: java -cp target/classes src.main.java.Simulator [games] [seed]
+ */
+public final class Simulator {
+    // Games are split into more parts than cores so a slow part does not leave cores waiting
+    private static final int PARTS_PER_CORE = 8;
+
+    private Simulator(){
+    }
+
+    public static void main(String[] args){
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 100_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+
+        System.out.println("Cores: " + Runtime.getRuntime().availableProcessors());
+        for(Difficulty difficulty : Difficulty.values()){
+            long start = System.nanoTime();
+            Result result = run(BoardSize.of(difficulty), games, seed);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%s: %d games, win rate %.2f%%, %.3f guesses per game, %.1f 3BV per game, "
+                            + "%.0f games/s, %.0f 3BV/s%n", difficulty, result.games,
+                    100.0 * result.wins / result.games, (double) result.guesses / result.games,
+                    (double) result.threeBV / result.games, result.games / seconds, result.threeBV / seconds);
+        }
+    }
+
+    /**
+     * Plays the games spread over the common ForkJoinPool, the first click is always the middle tile
+     */
+    public static Result run(BoardSize size, long games, long seed){
+        int parts = (int) Math.max(1, Math.min(games,
+                (long) Runtime.getRuntime().availableProcessors() * PARTS_PER_CORE));
+        return IntStream.range(0, parts)
+                .parallel()
+                .mapToObj(part -> play(size, seed, games * part / parts, games * (part + 1) / parts))
+                .reduce(new Result(), Result::add);
+    }
+
+    /**
+     * Plays games number first up to last on one board and one solver
+     */
+    private static Result play(BoardSize size, long seed, long first, long last){
+        Board board = new Board(size.getRowsAmount(), size.getColumnsAmount());
+        Solver solver = new Solver(true);
+        int startIndex = board.index(size.getColumnsAmount() / 2, size.getRowsAmount() / 2);
+
+        Result result = new Result();
+        for(long game = first; game < last; game++){
+            board.clear();
+            BoardGenerator.placeBombs(board, size.getBombsAmount(), seed + game, startIndex);
+            result.threeBV += board.getThreeBV();
+            if(solver.play(board, startIndex)) result.wins++;
+            result.guesses += solver.getGuessesAmount();
+            result.games++;
+        }
+        return result;
+    }
+
+    public static final class Result {
+        private long games;
+        private long wins;
+        private long guesses;
+        private long threeBV;
+
+        public long getGames(){
+            return games;
+        }
+
+        public long getWins(){
+            return wins;
+        }
+
+        public long getGuesses(){
+            return guesses;
+        }
+
+        /**
+         * @return 3BV of every board played, added up
+         */
+        public long getThreeBV(){
+            return threeBV;
+        }
+
+        private Result add(Result other){
+            Result sum = new Result();
+            sum.games = games + other.games;
+            sum.wins = wins + other.wins;
+            sum.guesses = guesses + other.guesses;
+            sum.threeBV = threeBV + other.threeBV;
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package src.main.java;
+
+import java.util.Arrays;
+
+/**
+ * Plays a game on a {@link Board} from the first click to the end, only using what a player can see: the numbers
+ * on shown tiles, its own marks and the total amount of bombs.
+ *
+ * Each step tries, in order:
+ * 1. Single tiles: a number that already has all its bombs marked shows the rest of its tiles, a number with as
+ *    many hidden tiles as bombs left marks all of them.
+ * 2. Pairs of numbers sharing hidden tiles: the bombs one number must have in the shared tiles can prove the
+ *    tiles only the other number touches are all safe or all bombs (this includes one set being inside the other).
+ * 3. A guess on the hidden tile least likely to be a bomb.
+ *
+ * The same solver can play many games one after another without making new arrays, as long as the boards are the
+ * same size.
+ */
+public class Solver {
+    private final boolean allowGuessing;
+
+    private Board board;
+    private int guessesAmount;
+
+    // Numbered tiles that changed since they were last looked at
+    private int[] queue = new int[0];
+    private boolean[] queued = new boolean[0];
+    private int queueHead;
+    private int queueSize;
+
+    private final int[] neighbours = new int[Topology.MAX_DEGREE];
+    private final int[] surrounding = new int[Topology.MAX_DEGREE];
+    private final int[] unknownA = new int[Topology.MAX_DEGREE];
+    private final int[] unknownB = new int[Topology.MAX_DEGREE];
+    private final int[] onlyB = new int[Topology.MAX_DEGREE];
+    private int markedNearby;  // Set by unknowns
+
+    /**
+     * @param allowGuessing When false the solver gives up instead of guessing
+     */
+    public Solver(boolean allowGuessing){
+        this.allowGuessing = allowGuessing;
+    }
+
+    /**
+     * Plays the whole game. The board must already have its bombs placed around the start tile.
+     * @return true if the game was won, every bomb is marked at the end of a won game
+     */
+    public boolean play(Board board, int startIndex){
+        prepare(board);
+        reveal(startIndex);
+
+        while(!board.isLost() && board.getHiddenSafeAmount() > 0){
+            if(solveQueued()) continue;
+            if(solvePairs()) continue;
+            if(!allowGuessing) return false;
+
+            guessesAmount++;
+            reveal(pickGuess());
+        }
+        if(board.isLost()) return false;
+
+        // Every hidden tile left is a bomb
+        for(int index = 0; index < board.getTilesAmount(); index++){
+            if(!board.isShown(index) && !board.isMarked(index)){
+                board.mark(index);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Amount of guesses made in the last game
+     */
+    public int getGuessesAmount(){
+        return guessesAmount;
+    }
+
+    private void prepare(Board board){
+        this.board = board;
+        int tiles = board.getTilesAmount();
+        if(queue.length != tiles){
+            queue = new int[tiles];
+            queued = new boolean[tiles];
+        }else{
+            Arrays.fill(queued, false);
+        }
+        queueHead = 0;
+        queueSize = 0;
+        guessesAmount = 0;
+    }
+
+    /**
+     * Single tile deductions on every queued number until none are left
+     * @return true if anything was shown or marked
+     */
+    private boolean solveQueued(){
+        boolean progress = false;
+        while(queueSize > 0){
+            int tile = queue[queueHead];
+            queueHead = (queueHead + 1) % queue.length;
+            queueSize--;
+            queued[tile] = false;
+
+            int unknownAmount = unknowns(tile, unknownA);
+            if(unknownAmount == 0) continue;
+            int bombsLeft = board.getBombsNearby(tile) - markedNearby;
+
+            if(bombsLeft == 0){
+                for(int i = 0; i < unknownAmount; i++){
+                    reveal(unknownA[i]);
+                }
+                progress = true;
+            }else if(bombsLeft == unknownAmount){
+                for(int i = 0; i < unknownAmount; i++){
+                    mark(unknownA[i]);
+                }
+                progress = true;
+            }
+        }
+        return progress;
+    }
+
+    /**
+     * Looks at every pair of numbers sharing a hidden tile and stops at the first pair that proves something
+     * @return true if anything was shown or marked
+     */
+    private boolean solvePairs(){
+        for(int a = 0; a < board.getTilesAmount(); a++){
+            if(!isNumber(a)) continue;
+            int unknownAmountA = unknowns(a, unknownA);
+            if(unknownAmountA == 0) continue;
+            int bombsLeftA = board.getBombsNearby(a) - markedNearby;
+
+            // Every number sharing a hidden tile with a is next to one of a's hidden tiles
+            for(int i = 0; i < unknownAmountA; i++){
+                int amount = board.neighbours(unknownA[i], surrounding);
+                for(int j = 0; j < amount; j++){
+                    int b = surrounding[j];
+                    if(b == a || !isNumber(b)) continue;
+                    if(solvePair(unknownAmountA, bombsLeftA, b)) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean solvePair(int unknownAmountA, int bombsLeftA, int b){
+        int unknownAmountB = unknowns(b, unknownB);
+        int bombsLeftB = board.getBombsNearby(b) - markedNearby;
+
+        int onlyBAmount = 0;
+        for(int i = 0; i < unknownAmountB; i++){
+            if(!contains(unknownA, unknownAmountA, unknownB[i])){
+                onlyB[onlyBAmount++] = unknownB[i];
+            }
+        }
+        if(onlyBAmount == 0) return false;
+        int sharedAmount = unknownAmountB - onlyBAmount;
+        int onlyAAmount = unknownAmountA - sharedAmount;
+
+        // The shared tiles have at least the bombs a cannot fit in its own tiles, and at most what a has left
+        int leastShared = bombsLeftA - onlyAAmount;
+        int mostShared = Math.min(sharedAmount, bombsLeftA);
+        if(bombsLeftB - leastShared <= 0){
+            for(int i = 0; i < onlyBAmount; i++){
+                reveal(onlyB[i]);
+            }
+            return true;
+        }
+        if(bombsLeftB - mostShared == onlyBAmount){
+            for(int i = 0; i < onlyBAmount; i++){
+                mark(onlyB[i]);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Picks the hidden tile with the smallest chance of being a bomb. A tile next to numbers takes the highest
+     * chance any of those numbers gives it, other tiles share the bombs that are left evenly.
+     */
+    private int pickGuess(){
+        int hiddenAmount = 0;
+        for(int index = 0; index < board.getTilesAmount(); index++){
+            if(!board.isShown(index) && !board.isMarked(index)) hiddenAmount++;
+        }
+        double restChance = (double) (board.getBombsAmount() - board.getMarkedAmount()) / hiddenAmount;
+
+        int best = -1;
+        double bestChance = 2;
+        for(int index = 0; index < board.getTilesAmount(); index++){
+            if(board.isShown(index) || board.isMarked(index)) continue;
+
+            double chance = -1;
+            int amount = board.neighbours(index, surrounding);
+            for(int i = 0; i < amount; i++){
+                int number = surrounding[i];
+                if(!isNumber(number)) continue;
+                int unknownAmount = unknowns(number, unknownB);
+                chance = Math.max(chance, (double) (board.getBombsNearby(number) - markedNearby) / unknownAmount);
+            }
+            if(chance < 0) chance = restChance;
+
+            if(chance < bestChance){
+                bestChance = chance;
+                best = index;
+            }
+        }
+        return best;
+    }
+
+    private void reveal(int index){
+        int amount = board.open(index);
+        int[] opened = board.getOpened();
+        for(int i = 0; i < amount; i++){
+            int tile = opened[i];
+            enqueue(tile);
+            int around = board.neighbours(tile, neighbours);
+            for(int j = 0; j < around; j++){
+                enqueue(neighbours[j]);
+            }
+        }
+    }
+
+    private void mark(int index){
+        if(!board.mark(index)) return;
+        int around = board.neighbours(index, neighbours);
+        for(int i = 0; i < around; i++){
+            enqueue(neighbours[i]);
+        }
+    }
+
+    private void enqueue(int tile){
+        if(queued[tile] || !isNumber(tile)) return;
+        queued[tile] = true;
+        queue[(queueHead + queueSize) % queue.length] = tile;
+        queueSize++;
+    }
+
+    private boolean isNumber(int tile){
+        return board.isShown(tile) && board.getBombsNearby(tile) != 0;
+    }
+
+    /**
+     * Puts the hidden, unmarked tiles around the tile into the array and counts its marked tiles in markedNearby
+     * @return  Amount of hidden, unmarked tiles
+     */
+    private int unknowns(int tile, int[] into){
+        int amount = board.neighbours(tile, neighbours);
+        int unknownAmount = 0;
+        markedNearby = 0;
+        for(int i = 0; i < amount; i++){
+            int adjacent = neighbours[i];
+            if(board.isMarked(adjacent)){
+                markedNearby++;
+            }else if(!board.isShown(adjacent)){
+                into[unknownAmount++] = adjacent;
+            }
+        }
+        return unknownAmount;
+    }
+
+    private static boolean contains(int[] tiles, int amount, int tile){
+        for(int i = 0; i < amount; i++){
+            if(tiles[i] == tile) return true;
+        }
+        return false;
+    }
+}
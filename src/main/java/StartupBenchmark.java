@@ -0,0 +1,50 @@
+package src.main.java;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures how long the program takes from the start of the JVM to the first frame and to the first click the
+ * game accepts. Turned on with -Dminesweeper.startup, the times are printed as they happen.
+ *
+ * With -Dminesweeper.startup=auto the middle tile is clicked in the first frame and the program closes after it,
+ * so the measurement can be run from a script: java -Dminesweeper.startup=auto -jar target/<jar>
+ */
+public final class StartupBenchmark {
+    public static final String PROPERTY = "minesweeper.startup";
+    private static final String AUTO = "auto";
+
+    private static final String MODE = System.getProperty(PROPERTY);
+    private static boolean firstFrameSeen = false;
+    private static boolean firstClickSeen = false;
+
+    private StartupBenchmark(){
+    }
+
+    public static boolean isEnabled(){
+        return MODE != null;
+    }
+
+    /**
+     * @return true if the first click is made by the program and it closes afterwards
+     */
+    public static boolean isAuto(){
+        return AUTO.equals(MODE);
+    }
+
+    public static void firstFrame(){
+        if(!isEnabled() || firstFrameSeen) return;
+        firstFrameSeen = true;
+        print("First frame");
+    }
+
+    public static void firstClick(){
+        if(!isEnabled() || firstClickSeen) return;
+        firstClickSeen = true;
+        print("First accepted click");
+    }
+
+    private static void print(String stage){
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        System.out.println(stage + ": " + (System.currentTimeMillis() - jvmStart) + " ms after JVM start");
+    }
+}
@@ -0,0 +1,486 @@
+package src.main.java;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps every finished game in a log file and answers questions about them from an index kept in memory.
+ *
+ * The log (stats.log) holds one 48 byte record for each game, written on a background thread:
+ *   difficulty ordinal (or -1 when custom), result, 2 unused bytes, rows, columns, bombs, seed, time the game
+ *   ended, milliseconds, clicks, 3BV, 4 unused bytes
+ *
+ * The index has, for each board size, the amount of games and wins, the streaks, every winning time in order and
+ * the 3BV and time of the wins added up, so best times, win rates, streaks, percentiles and 3BV per second are
+ * answered without looking through the games. A win finds its place among the times with a binary search and
+ * shifts the slower ones along in one array copy. Every
+ * {@link #CHECKPOINT_EVERY} games the index is written to stats.idx with how much of the log it covers. Starting
+ * up reads that file and only the records after it, so the log never has to be read from the start.
+ *
+ * Once the log passes {@link #COMPACT_BYTES} at a checkpoint, the index written then covers all of it, so it is
+ * forced to the disk and the log is deleted. The index is the compacted snapshot and the new log is the tail
+ * after it, so neither grows past its own size. Numbered logs (stats.log.1, ...) left by older versions are
+ * folded into the index the same way and deleted once it is saved.
+ */
+public class StatsStore {
+    public static final String LOG_FILE = "stats.log";
+    public static final String INDEX_FILE = "stats.idx";
+    private static final int RECORD_BYTES = 48;
+    private static final int CHECKPOINT_EVERY = 1024;
+    private static final long COMPACT_BYTES = 16L * 1024 * 1024;
+    private static final int READ_RECORDS = 1024;
+    private static final byte[] MAGIC = {'M', 'S', 'S', 'T'};
+    private static final byte VERSION = 2;
+    // Version 1 indexes have no 3BV, their games are left out of 3BV per second
+    private static final byte VERSION_WITHOUT_THREE_BV = 1;
+    private static final byte CUSTOM = -1;
+
+    private final Path logFile;
+    private final Path indexFile;
+    private final Map<BoardSize, Tally> tallies = new HashMap<>();
+    private long logBytes;      // Log bytes in the index kept in memory
+    private long coveredBytes;  // Log bytes in the index file
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Statistics writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private StatsStore(Path logFile, Path indexFile){
+        this.logFile = logFile;
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Loads the index file and the log records written after it
+     */
+    public static StatsStore open(Path directory) throws IOException {
+        StatsStore store = new StatsStore(directory.resolve(LOG_FILE), directory.resolve(INDEX_FILE));
+        store.load();
+        return store;
+    }
+
+    public static StatsStore openDefault() throws IOException {
+        return open(DataDirectory.get());
+    }
+
+    /**
+     * @return How fast the board was cleared, the least clicks it needed for each second played
+     */
+    public static double getThreeBVPerSecond(long threeBV, long millis){
+        return millis <= 0 ? 0 : threeBV * 1000.0 / millis;
+    }
+
+    /**
+     * Adds a finished game to the index at once and to the log on the writer thread
+     */
+    public synchronized void record(BoardSize size, boolean won, long millis, int clicks, int threeBV, long seed){
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        record.put(size.isCustom() ? CUSTOM : (byte) size.getDifficulty().ordinal());
+        record.put((byte) (won ? 1 : 0)).putShort((short) 0);
+        record.putInt(size.getRowsAmount()).putInt(size.getColumnsAmount()).putInt(size.getBombsAmount());
+        record.putLong(seed).putLong(System.currentTimeMillis());
+        record.putInt((int) Math.min(Integer.MAX_VALUE, millis)).putInt(clicks).putInt(threeBV).putInt(0);
+        record.flip();
+
+        tally(size).add(won, (int) Math.min(Integer.MAX_VALUE, millis), threeBV);
+        logBytes += RECORD_BYTES;
+        boolean checkpoint = logBytes - coveredBytes >= (long) CHECKPOINT_EVERY * RECORD_BYTES;
+        byte[] index = checkpoint ? serializeIndex() : null;
+        boolean compact = checkpoint && logBytes >= COMPACT_BYTES;
+        if(checkpoint) coveredBytes = logBytes;
+        if(compact){
+            logBytes = 0;
+            coveredBytes = 0;
+        }
+
+        writer.execute(() -> {
+            try{
+                try(FileChannel channel = FileChannel.open(logFile, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND)){
+                    while(record.hasRemaining()){
+                        channel.write(record);
+                    }
+                }
+                if(index != null){
+                    writeIndex(index, compact);
+                }
+                if(compact){
+                    // The index file says it covers more than the new log has, which load() reads as none of it.
+                    // The next checkpoint comes long before the new log could grow that large.
+                    Files.delete(logFile);
+                }
+            }catch(IOException e){
+                System.err.println("Could not save statistics: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * @return Statistics of the board size as they are now, empty if no game was played on it
+     */
+    public synchronized Entry get(BoardSize size){
+        Tally tally = tallies.get(size);
+        return tally == null ? new Tally().snapshot() : tally.snapshot();
+    }
+
+    /**
+     * Reads the time straight out of the sorted winning times, without copying them
+     * @param percentile 0 to 100, 50 is the median winning time
+     * @return Winning time on the board size at the percentile in milliseconds, or -1 before the first win
+     */
+    public synchronized long getPercentileMillis(BoardSize size, double percentile){
+        Tally tally = tallies.get(size);
+        return tally == null ? -1 : tally.percentileMillis(percentile);
+    }
+
+    /**
+     * Writes the index and waits for everything to be written
+     */
+    public void close() throws InterruptedException {
+        synchronized(this){
+            if(logBytes != coveredBytes){
+                byte[] index = serializeIndex();
+                coveredBytes = logBytes;
+                writer.execute(() -> {
+                    try{
+                        writeIndex(index, false);
+                    }catch(IOException e){
+                        System.err.println("Could not save statistics: " + e.getMessage());
+                    }
+                });
+            }
+        }
+        writer.shutdown();
+        writer.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private Tally tally(BoardSize size){
+        return tallies.computeIfAbsent(size, key -> new Tally());
+    }
+
+    /**
+     * @return Numbered log left by an older version, counting from 1
+     */
+    private Path archive(int number){
+        return logFile.resolveSibling(logFile.getFileName() + "." + number);
+    }
+
+    private void load() throws IOException {
+        int archivedAmount = 0;
+        while(Files.exists(archive(archivedAmount + 1))){
+            archivedAmount++;
+        }
+        boolean indexRead = false;
+        if(Files.exists(indexFile)){
+            try{
+                readIndex();
+                indexRead = true;
+            }catch(IOException | RuntimeException e){
+                tallies.clear();
+                coveredBytes = 0;
+            }
+        }
+        if(!indexRead){
+            // Built again from every numbered log and then the whole log
+            for(int number = 1; number <= archivedAmount; number++){
+                Path archive = archive(number);
+                long size = Files.size(archive);
+                readRecords(archive, 0, size - size % RECORD_BYTES);
+            }
+        }
+
+        long logSize = Files.exists(logFile) ? Files.size(logFile) : 0;
+        if(coveredBytes > logSize){
+            // The log was compacted after the index was written, so everything in it is new
+            coveredBytes = 0;
+        }
+        long wholeRecords = logSize - logSize % RECORD_BYTES;
+        if(wholeRecords != logSize){
+            // A record was only partly written when the program stopped
+            try(FileChannel channel = FileChannel.open(logFile, StandardOpenOption.WRITE)){
+                channel.truncate(wholeRecords);
+            }
+        }
+
+        readRecords(logFile, coveredBytes, wholeRecords);
+        logBytes = wholeRecords;
+
+        if(archivedAmount > 0){
+            // Every numbered log is in the index now, whether it was read or built again, so they are folded in
+            coveredBytes = logBytes;
+            writeIndex(serializeIndex(), true);
+            for(int number = 1; number <= archivedAmount; number++){
+                Files.delete(archive(number));
+            }
+        }
+    }
+
+    /**
+     * Reads the records through a buffer rather than mapping the file, so a numbered log can be deleted afterwards
+     * on every system
+     */
+    private void readRecords(Path file, long from, long to) throws IOException {
+        if(to <= from) return;
+        ByteBuffer log = ByteBuffer.allocate(READ_RECORDS * RECORD_BYTES);
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            channel.position(from);
+            long left = to - from;
+            while(left > 0){
+                log.clear().limit((int) Math.min(log.capacity(), left));
+                while(log.hasRemaining()){
+                    if(channel.read(log) < 0) throw new IOException(file + " ended early");
+                }
+                left -= log.limit();
+                log.flip();
+                while(log.hasRemaining()){
+                    applyRecord(log);
+                }
+            }
+        }
+    }
+
+    private void applyRecord(ByteBuffer log){
+        int start = log.position();
+        byte kind = log.get();
+        boolean won = log.get() == 1;
+        log.getShort();
+        int rows = log.getInt();
+        int columns = log.getInt();
+        int bombs = log.getInt();
+        log.getLong();  // Seed
+        log.getLong();  // Time the game ended
+        int millis = log.getInt();
+        log.getInt();  // Clicks
+        int threeBV = log.getInt();
+        log.position(start + RECORD_BYTES);
+
+        BoardSize size;
+        try{
+            size = toSize(kind, rows, columns, bombs);
+        }catch(RuntimeException e){
+            // A broken record loses its own game, not the statistics of every other one
+            System.err.println("Skipped a broken statistics record: " + e.getMessage());
+            return;
+        }
+        if(millis < 0) return;
+        tally(size).add(won, millis, threeBV);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the values are not a board size
+     */
+    private static BoardSize toSize(byte kind, int rows, int columns, int bombs){
+        if(kind != CUSTOM && (kind < 0 || kind >= Difficulty.values().length)){
+            throw new IllegalArgumentException("Unknown difficulty " + kind);
+        }
+        return kind == CUSTOM ? BoardSize.custom(rows, columns, bombs) : BoardSize.of(Difficulty.values()[kind]);
+    }
+
+    /**
+     * Index file: "MSST", version, log bytes covered, amount of entries, then for each entry its board size,
+     * games, wins, streaks, 3BV and time of the wins and winning times
+     */
+    private byte[] serializeIndex(){
+        int bytes = MAGIC.length + 1 + Long.BYTES + Integer.BYTES;
+        for(Tally entry : tallies.values()){
+            bytes += 1 + 3 * Integer.BYTES + 4 * Long.BYTES + Double.BYTES + 3 * Integer.BYTES
+                    + entry.timesAmount * Integer.BYTES;
+        }
+        ByteBuffer index = ByteBuffer.allocate(bytes);
+        index.put(MAGIC).put(VERSION).putLong(logBytes).putInt(tallies.size());
+        for(Map.Entry<BoardSize, Tally> pair : tallies.entrySet()){
+            BoardSize size = pair.getKey();
+            Tally entry = pair.getValue();
+            index.put(size.isCustom() ? CUSTOM : (byte) size.getDifficulty().ordinal());
+            index.putInt(size.getRowsAmount()).putInt(size.getColumnsAmount()).putInt(size.getBombsAmount());
+            index.putLong(entry.gamesAmount).putLong(entry.winsAmount);
+            index.putLong(entry.threeBVSum).putLong(entry.threeBVMillis).putDouble(entry.bestThreeBVPerSecond);
+            index.putInt(entry.currentStreak).putInt(entry.bestStreak).putInt(entry.timesAmount);
+            index.asIntBuffer().put(entry.times, 0, entry.timesAmount);
+            index.position(index.position() + entry.timesAmount * Integer.BYTES);
+        }
+        return index.array();
+    }
+
+    /**
+     * @param force true to wait until the index is on the disk, before a log it covers is deleted
+     */
+    private void writeIndex(byte[] index, boolean force) throws IOException {
+        Path temporary = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)){
+            ByteBuffer buffer = ByteBuffer.wrap(index);
+            while(buffer.hasRemaining()){
+                channel.write(buffer);
+            }
+            if(force) channel.force(true);
+        }
+        Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void readIndex() throws IOException {
+        ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+        for(byte expected : MAGIC){
+            if(index.get() != expected) throw new IOException(indexFile + " is not a statistics index");
+        }
+        byte version = index.get();
+        if(version != VERSION && version != VERSION_WITHOUT_THREE_BV){
+            throw new IOException(indexFile + " has an unknown version");
+        }
+        coveredBytes = index.getLong();
+        int entriesAmount = index.getInt();
+        for(int i = 0; i < entriesAmount; i++){
+            byte kind = index.get();
+            BoardSize size = toSize(kind, index.getInt(), index.getInt(), index.getInt());
+            Tally entry = tally(size);
+            entry.gamesAmount = index.getLong();
+            entry.winsAmount = index.getLong();
+            if(version == VERSION){
+                entry.threeBVSum = index.getLong();
+                entry.threeBVMillis = index.getLong();
+                entry.bestThreeBVPerSecond = index.getDouble();
+            }
+            entry.currentStreak = index.getInt();
+            entry.bestStreak = index.getInt();
+            entry.timesAmount = index.getInt();
+            entry.times = new int[Math.max(16, entry.timesAmount)];
+            index.asIntBuffer().get(entry.times, 0, entry.timesAmount);
+            index.position(index.position() + entry.timesAmount * Integer.BYTES);
+            // Indexes written for a while kept the times in the order they were won
+            Arrays.sort(entry.times, 0, entry.timesAmount);
+        }
+    }
+
+    /**
+     * Statistics of one board size as they are kept and changed by the store
+     */
+    private static final class Tally {
+        private long gamesAmount;
+        private long winsAmount;
+        private int currentStreak;
+        private int bestStreak;
+        // Winning times in milliseconds, fastest first
+        private int[] times = new int[16];
+        private int timesAmount;
+        // 3BV and milliseconds of the wins that know their 3BV, added up
+        private long threeBVSum;
+        private long threeBVMillis;
+        private double bestThreeBVPerSecond;
+
+        private void add(boolean won, int millis, int threeBV){
+            gamesAmount++;
+            if(!won){
+                currentStreak = 0;
+                return;
+            }
+            winsAmount++;
+            currentStreak++;
+            bestStreak = Math.max(bestStreak, currentStreak);
+            if(threeBV > 0 && millis > 0){
+                threeBVSum += threeBV;
+                threeBVMillis += millis;
+                bestThreeBVPerSecond = Math.max(bestThreeBVPerSecond, getThreeBVPerSecond(threeBV, millis));
+            }
+
+            int position = Arrays.binarySearch(times, 0, timesAmount, millis);
+            if(position < 0) position = -position - 1;
+            if(timesAmount == times.length){
+                times = Arrays.copyOf(times, times.length * 2);
+            }
+            System.arraycopy(times, position, times, position + 1, timesAmount - position);
+            times[position] = millis;
+            timesAmount++;
+        }
+
+        private long percentileMillis(double percentile){
+            if(timesAmount == 0) return -1;
+            int position = (int) Math.ceil(percentile / 100 * timesAmount) - 1;
+            return times[Math.max(0, Math.min(timesAmount - 1, position))];
+        }
+
+        private Entry snapshot(){
+            return new Entry(gamesAmount, winsAmount, currentStreak, bestStreak, timesAmount == 0 ? -1 : times[0],
+                    bestThreeBVPerSecond, threeBVMillis == 0 ? 0 : getThreeBVPerSecond(threeBVSum, threeBVMillis));
+        }
+    }
+
+    /**
+     * Statistics of one board size at the time they were asked for, percentiles are asked from the store
+     */
+    public static final class Entry {
+        private final long gamesAmount;
+        private final long winsAmount;
+        private final int currentStreak;
+        private final int bestStreak;
+        private final long bestMillis;
+        private final double bestThreeBVPerSecond;
+        private final double averageThreeBVPerSecond;
+
+        private Entry(long gamesAmount, long winsAmount, int currentStreak, int bestStreak, long bestMillis,
+                      double bestThreeBVPerSecond, double averageThreeBVPerSecond){
+            this.gamesAmount = gamesAmount;
+            this.winsAmount = winsAmount;
+            this.currentStreak = currentStreak;
+            this.bestStreak = bestStreak;
+            this.bestMillis = bestMillis;
+            this.bestThreeBVPerSecond = bestThreeBVPerSecond;
+            this.averageThreeBVPerSecond = averageThreeBVPerSecond;
+        }
+
+        public long getGamesAmount(){
+            return gamesAmount;
+        }
+
+        public long getWinsAmount(){
+            return winsAmount;
+        }
+
+        /**
+         * @return Share of games won, 0 to 1
+         */
+        public double getWinRate(){
+            return gamesAmount == 0 ? 0 : (double) winsAmount / gamesAmount;
+        }
+
+        public int getCurrentStreak(){
+            return currentStreak;
+        }
+
+        public int getBestStreak(){
+            return bestStreak;
+        }
+
+        /**
+         * @return Fastest win in milliseconds, or -1 before the first win
+         */
+        public long getBestMillis(){
+            return bestMillis;
+        }
+
+        /**
+         * @return Highest 3BV per second of a win, or 0 before the first win
+         */
+        public double getBestThreeBVPerSecond(){
+            return bestThreeBVPerSecond;
+        }
+
+        /**
+         * @return 3BV of all wins over the time of all wins, or 0 before the first win
+         */
+        public double getAverageThreeBVPerSecond(){
+            return averageThreeBVPerSecond;
+        }
+    }
+}
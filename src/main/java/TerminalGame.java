@@ -0,0 +1,577 @@
+package src.main.java;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays a game in a terminal with ANSI escape codes, for machines without a display or over SSH. The terminal's
+ * own cursor is the selected tile:
+ *   arrows or h j k l   move one tile            H J K L   move half a screen
+ *   space or enter      opens the tile           f or m    marks or unmarks it
+ *   n                   starts a new game        r         draws everything again, after resizing the terminal
+ *   q or Ctrl+C         quits
+ *
+ * Every tile takes two characters. The board keeps the tiles each move changes in a {@link ChangeBatch}, only
+ * those are written, each after an escape code that moves the cursor to it, and only when it differs from what
+ * the screen already shows. Tiles next to each other on a row are written without moving the cursor in between.
+ * The whole screen is only written when the game starts, when the cursor leaves the part of the board that fits
+ * and when r is pressed, so a move costs about as many bytes as the tiles it changed on any size of board. The time
+ * in the status line is written again every second while the clock runs, from its own thread.
+ *
+ * Run with: java -cp target/classes src.main.java.TerminalGame [easy|intermediate|expert | rows columns bombs]
+ */
+public final class TerminalGame {
+    private static final String CSI = "\033[";
+    private static final int CELL_WIDTH = 2;
+    // Lines under the board for the status and the keys
+    private static final int FOOTER_LINES = 2;
+    private static final String KEYS = "arrows/hjkl move, space open, f mark, n new, r redraw, q quit";
+    private static final int UP = -1;
+    private static final int DOWN = -2;
+    private static final int LEFT = -3;
+    private static final int RIGHT = -4;
+    private static final int CTRL_C = 3;
+    private static final int END = Integer.MIN_VALUE;
+    // How long the rest of an arrow key is waited for after ESC, its bytes can come in separate reads over SSH
+    private static final long ESCAPE_WAIT_MILLIS = 150;
+    private static final long TICK_MILLIS = 1000;
+    // Text and colour written for every TileState
+    private static final char[] GLYPHS = new char[TileState.AMOUNT];
+    private static final String[] COLORS = new String[TileState.AMOUNT];
+
+    static{
+        String[] numberColors = {"0", "1;34", "1;32", "1;31", "1;35", "1;33", "1;36", "1;30", "1;37"};
+        for(int number = 0; number <= 8; number++){
+            GLYPHS[number] = number == 0 ? ' ' : (char) ('0' + number);
+            COLORS[number] = numberColors[number];
+        }
+        GLYPHS[TileState.MARKED] = 'F';
+        COLORS[TileState.MARKED] = "1;31;47";
+        GLYPHS[TileState.COVERED] = '.';
+        COLORS[TileState.COVERED] = "0;30;47";
+        GLYPHS[TileState.BOMB] = '*';
+        COLORS[TileState.BOMB] = "1;30";
+        GLYPHS[TileState.EXPLODED] = '*';
+        COLORS[TileState.EXPLODED] = "1;37;41";
+    }
+
+    private final BoardSize size;
+    private final OutputStream out;
+    private final SplittableRandom seeds;
+    private final ChangeBatch changes = new ChangeBatch();
+    private final GameClock clock = new GameClock();
+    // Escape codes and tiles of one move, written to the terminal at once
+    private final StringBuilder frame = new StringBuilder();
+
+    private Board board;
+    private long seed;
+    private boolean started;
+    // Why the last first opening was refused, until another tile is opened
+    private String refusal;
+    private int cursorX;
+    private int cursorY;
+
+    private int screenRows;
+    private int screenColumns;
+    // Tile at the top left of the screen and how many tiles fit
+    private int originX;
+    private int originY;
+    private int viewRows;
+    private int viewColumns;
+    // State shown in every cell of the screen, -1 when it is not known
+    private byte[] drawn = new byte[0];
+    // Where the terminal writes next and the colour it writes with, so they are only changed when needed
+    private int writeRow = -1;
+    private int writeColumn = -1;
+    private String color = "";
+    private String status = "";
+    private long bytesWritten;
+
+    /**
+     * @param seed Seed of the seeds of every game
+     */
+    TerminalGame(BoardSize size, long seed, int screenRows, int screenColumns, OutputStream out){
+        this.size = size;
+        this.seeds = new SplittableRandom(seed);
+        this.out = out;
+        setScreenSize(screenRows, screenColumns);
+    }
+
+    public static void main(String[] args) throws IOException {
+        BoardSize size = parseSize(args);
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16);
+        RawMode rawMode;
+        try{
+            rawMode = RawMode.enter();
+        }catch(IOException e){
+            System.err.println("Could not switch the terminal to raw mode, keys need enter: " + e.getMessage());
+            rawMode = null;
+        }
+        RawMode restore = rawMode;
+        Thread restoreOnExit = new Thread(() -> {
+            if(restore != null) restore.close();
+        });
+        Runtime.getRuntime().addShutdownHook(restoreOnExit);
+
+        int[] screen = RawMode.screenSize();
+        TerminalGame game = new TerminalGame(size, System.nanoTime(), screen[0], screen[1], out);
+        try{
+            game.play(System.in);
+        }finally{
+            game.leave();
+            if(rawMode != null) rawMode.close();
+            Runtime.getRuntime().removeShutdownHook(restoreOnExit);
+        }
+        System.out.println(game.getStatus());
+        System.out.println(game.getBytesWritten() + " bytes written to the terminal");
+    }
+
+    private static BoardSize parseSize(String[] args){
+        if(args.length == 0) return BoardSize.of(Difficulty.EXPERT);
+        if(args.length == 1) return BoardSize.of(Difficulty.valueOf(args[0].toUpperCase(Locale.ROOT)));
+        if(args.length == 3){
+            return BoardSize.custom(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+                    Integer.parseInt(args[2]));
+        }
+        throw new IllegalArgumentException("Give a difficulty or rows, columns and bombs");
+    }
+
+    /**
+     * Reads keys until the player quits
+     */
+    void play(InputStream in) throws IOException {
+        start();
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Terminal clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        try{
+            int key;
+            while((key = readKey(in)) != 'q' && key != CTRL_C && key != END){
+                if(key == 'r'){
+                    int[] screen = RawMode.screenSize();
+                    redraw(screen[0], screen[1]);
+                }else{
+                    key(key);
+                }
+            }
+        }finally{
+            ticker.shutdownNow();
+        }
+    }
+
+    /**
+     * Switches to the terminal's second screen and writes the first game
+     */
+    synchronized void start() throws IOException {
+        frame.append(CSI).append("?1049h");
+        newGame();
+        flush();
+    }
+
+    /**
+     * Writes the whole screen again for a terminal of the size
+     */
+    synchronized void redraw(int screenRows, int screenColumns) throws IOException {
+        setScreenSize(screenRows, screenColumns);
+        scrollTo(cursorX, cursorY);
+        drawAll();
+        flush();
+    }
+
+    /**
+     * Writes the time again when it changed, called every second
+     */
+    synchronized void tick(){
+        if(!clock.isRunning()) return;
+        drawStatus();
+        placeCursor();
+        try{
+            flush();
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Goes back to the screen the terminal had before the game
+     */
+    synchronized void leave() throws IOException {
+        frame.append(CSI).append("0m").append(CSI).append("?1049l");
+        flush();
+    }
+
+    /**
+     * @return The next key, one of the arrow constants for arrow keys, or END at the end of the input
+     */
+    static int readKey(InputStream in) throws IOException {
+        int read = in.read();
+        if(read != 27) return read < 0 ? END : read;
+        // An arrow key sends ESC, [ and a letter, a lone ESC is ignored and the key after it is played
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ESCAPE_WAIT_MILLIS);
+        int bracket = readBefore(in, deadline);
+        if(bracket < 0) return 0;
+        if(bracket != '[' && bracket != 'O') return bracket;
+        int letter = readBefore(in, deadline);
+        switch(letter){
+            case 'A':
+                return UP;
+            case 'B':
+                return DOWN;
+            case 'C':
+                return RIGHT;
+            case 'D':
+                return LEFT;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @return The next byte, or -1 when none came before the deadline or the input ended
+     */
+    private static int readBefore(InputStream in, long deadline) throws IOException {
+        while(in.available() <= 0){
+            if(System.nanoTime() - deadline >= 0) return -1;
+            try{
+                Thread.sleep(1);
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                return -1;
+            }
+        }
+        return in.read();
+    }
+
+    /**
+     * Plays one key and writes what it changed
+     */
+    synchronized void key(int key){
+        int half = Math.max(1, Math.min(viewRows, viewColumns) / 2);
+        switch(key){
+            case UP:
+            case 'k':
+                moveCursor(0, -1);
+                break;
+            case DOWN:
+            case 'j':
+                moveCursor(0, 1);
+                break;
+            case LEFT:
+            case 'h':
+                moveCursor(-1, 0);
+                break;
+            case RIGHT:
+            case 'l':
+                moveCursor(1, 0);
+                break;
+            case 'K':
+                moveCursor(0, -half);
+                break;
+            case 'J':
+                moveCursor(0, half);
+                break;
+            case 'H':
+                moveCursor(-half, 0);
+                break;
+            case 'L':
+                moveCursor(half, 0);
+                break;
+            case ' ':
+            case '\r':
+            case '\n':
+                open();
+                break;
+            case 'f':
+            case 'm':
+                mark();
+                break;
+            case 'n':
+                newGame();
+                break;
+            default:
+                return;
+        }
+        try{
+            flush();
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void newGame(){
+        if(board != null && board.getRowsAmount() == size.getRowsAmount()
+                && board.getColumnsAmount() == size.getColumnsAmount()){
+            board.clear();
+        }else{
+            board = new Board(size.getRowsAmount(), size.getColumnsAmount());
+            board.setChanges(changes);
+        }
+        changes.clear();
+        seed = seeds.nextLong();
+        started = false;
+        refusal = null;
+        clock.reset();
+        cursorX = size.getColumnsAmount() / 2;
+        cursorY = size.getRowsAmount() / 2;
+        scrollTo(cursorX, cursorY);
+        drawAll();
+    }
+
+    private boolean isOver(){
+        return board.isWon() || board.isLost();
+    }
+
+    private void open(){
+        if(isOver()) return;
+        int index = board.index(cursorX, cursorY);
+        if(!started){
+            int maxBombs = BoardGenerator.maxBombs(board, index);
+            if(size.getBombsAmount() > maxBombs){
+                refusal = "Only " + maxBombs + " bombs fit around this tile, start nearer an edge";
+                drawStatus();
+                placeCursor();
+                return;
+            }
+            refusal = null;
+            BoardGenerator.placeBombs(board, size.getBombsAmount(), seed, index);
+            started = true;
+            clock.start();
+        }
+        board.open(index);
+        if(board.isLost()) board.showBombs();
+        if(isOver()) clock.pause();
+        drawChanges();
+    }
+
+    private void mark(){
+        int index = board.index(cursorX, cursorY);
+        // Bombs are only placed by the first opening, a mark before it could not be counted
+        if(!started || isOver() || board.isShown(index)) return;
+        if(!board.unmark(index)) board.mark(index);
+        if(isOver()) clock.pause();
+        drawChanges();
+    }
+
+    private void moveCursor(int moveX, int moveY){
+        cursorX = Math.max(0, Math.min(board.getColumnsAmount() - 1, cursorX + moveX));
+        cursorY = Math.max(0, Math.min(board.getRowsAmount() - 1, cursorY + moveY));
+        if(cursorX < originX || cursorX >= originX + viewColumns || cursorY < originY
+                || cursorY >= originY + viewRows){
+            scrollTo(cursorX, cursorY);
+            drawAll();
+        }else{
+            placeCursor();
+        }
+    }
+
+    private void setScreenSize(int rows, int columns){
+        screenRows = Math.max(FOOTER_LINES + 1, rows);
+        screenColumns = Math.max(CELL_WIDTH, columns);
+    }
+
+    /**
+     * Puts the tile in the middle of the screen, or as near as the edges of the board let it
+     */
+    private void scrollTo(int x, int y){
+        viewColumns = Math.min(size.getColumnsAmount(), screenColumns / CELL_WIDTH);
+        viewRows = Math.min(size.getRowsAmount(), screenRows - FOOTER_LINES);
+        originX = Math.max(0, Math.min(size.getColumnsAmount() - viewColumns, x - viewColumns / 2));
+        originY = Math.max(0, Math.min(size.getRowsAmount() - viewRows, y - viewRows / 2));
+        if(drawn.length != viewRows * viewColumns){
+            drawn = new byte[viewRows * viewColumns];
+        }
+    }
+
+    /**
+     * Clears the screen and writes every tile that fits on it
+     */
+    private void drawAll(){
+        frame.append(CSI).append("0m").append(CSI).append("2J");
+        color = "0";
+        writeRow = -1;
+        Arrays.fill(drawn, (byte) -1);
+        status = "";
+        for(int y = originY; y < originY + viewRows; y++){
+            for(int x = originX; x < originX + viewColumns; x++){
+                drawTile(x, y);
+            }
+        }
+        changes.clear();
+        moveTo(viewRows + 1, 0);
+        setColor("0");
+        frame.append(fit(KEYS));
+        drawStatus();
+        placeCursor();
+    }
+
+    /**
+     * Writes the tiles the last move changed that are on the screen
+     */
+    private void drawChanges(){
+        int columns = board.getColumnsAmount();
+        for(int i = 0; i < changes.size(); i++){
+            int index = changes.getIndex(i);
+            int x = index % columns;
+            int y = index / columns;
+            if(x >= originX && x < originX + viewColumns && y >= originY && y < originY + viewRows){
+                drawTile(x, y);
+            }
+        }
+        changes.clear();
+        drawStatus();
+        placeCursor();
+    }
+
+    private void drawTile(int x, int y){
+        byte state = board.getState(board.index(x, y));
+        int cell = (y - originY) * viewColumns + x - originX;
+        if(drawn[cell] == state) return;
+        drawn[cell] = state;
+        moveTo(y - originY, (x - originX) * CELL_WIDTH);
+        setColor(COLORS[state]);
+        frame.append(GLYPHS[state]).append(' ');
+        writeColumn += CELL_WIDTH;
+    }
+
+    private void drawStatus(){
+        String text = getStatus();
+        if(text.equals(status)) return;
+        status = text;
+        moveTo(viewRows, 0);
+        setColor("0");
+        frame.append(CSI).append('K').append(fit(text));
+        writeRow = -1;
+    }
+
+    private String fit(String text){
+        return text.length() <= screenColumns ? text : text.substring(0, screenColumns);
+    }
+
+    /**
+     * @return Bombs left, time and how the game stands
+     */
+    String getStatus(){
+        String state;
+        if(board.isLost()){
+            state = "You lost";
+        }else if(board.isWon()){
+            state = "You won";
+        }else if(refusal != null){
+            state = refusal;
+        }else{
+            state = started ? "Playing" : "Open a tile to start";
+        }
+        return "Bombs left: " + (size.getBombsAmount() - board.getMarkedAmount()) + "   Time: "
+                + GameClock.format(clock.getElapsedMillis()) + "   " + state;
+    }
+
+    private void placeCursor(){
+        moveTo(cursorY - originY, (cursorX - originX) * CELL_WIDTH);
+    }
+
+    /**
+     * Moves the terminal's cursor, screen rows and columns start at 0
+     */
+    private void moveTo(int row, int column){
+        if(row == writeRow && column == writeColumn) return;
+        frame.append(CSI).append(row + 1).append(';').append(column + 1).append('H');
+        writeRow = row;
+        writeColumn = column;
+    }
+
+    private void setColor(String sgr){
+        if(sgr.equals(color)) return;
+        frame.append(CSI).append(sgr).append('m');
+        color = sgr;
+    }
+
+    private void flush() throws IOException {
+        byte[] bytes = frame.toString().getBytes(StandardCharsets.US_ASCII);
+        frame.setLength(0);
+        out.write(bytes);
+        out.flush();
+        bytesWritten += bytes.length;
+    }
+
+    long getBytesWritten(){
+        return bytesWritten;
+    }
+
+    /**
+     * Switches the terminal to sending every key at once without showing it, with stty
+     */
+    private static final class RawMode implements AutoCloseable {
+        private static final File TTY = new File("/dev/tty");
+        private final String saved;
+        private boolean closed;
+
+        private RawMode(String saved){
+            this.saved = saved;
+        }
+
+        private static RawMode enter() throws IOException {
+            RawMode rawMode = new RawMode(stty("-g").trim());
+            stty("raw", "-echo");
+            return rawMode;
+        }
+
+        /**
+         * @return Rows and columns of the terminal, 24 by 80 when they cannot be found
+         */
+        private static int[] screenSize(){
+            try{
+                String[] words = stty("size").trim().split(" ");
+                int rows = Integer.parseInt(words[0]);
+                int columns = Integer.parseInt(words[1]);
+                // Some terminals, like the ones made by script, do not say their size
+                if(rows > 0 && columns > 0) return new int[]{rows, columns};
+            }catch(IOException | RuntimeException e){
+                // Not a terminal, or stty did not answer
+            }
+            return new int[]{24, 80};
+        }
+
+        @Override
+        public synchronized void close(){
+            if(closed) return;
+            closed = true;
+            try{
+                stty(saved);
+            }catch(IOException e){
+                System.err.println("Could not restore the terminal, run stty sane: " + e.getMessage());
+            }
+        }
+
+        private static String stty(String... args) throws IOException {
+            String[] command = new String[args.length + 1];
+            command[0] = "stty";
+            System.arraycopy(args, 0, command, 1, args.length);
+            Process process = new ProcessBuilder(command).redirectInput(ProcessBuilder.Redirect.from(TTY))
+                    .redirectError(ProcessBuilder.Redirect.DISCARD).start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+            try{
+                if(process.waitFor() != 0) throw new IOException("stty " + String.join(" ", args) + " failed");
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while running stty", e);
+            }
+            return output;
+        }
+    }
+}
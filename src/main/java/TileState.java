@@ -0,0 +1,23 @@
+package src.main.java;
+
+/**
+ * What the player sees on a tile, kept in a byte. A shown tile without a bomb is the amount of bombs nearby it,
+ * 0 to 8, the other states come after those.
+ */
+public final class TileState {
+    public static final byte MARKED = 9;
+    public static final byte COVERED = 10;
+    // Bombs are only seen once the player lost
+    public static final byte BOMB = 11;
+    public static final byte EXPLODED = 12;
+
+    // Amount of different states
+    public static final int AMOUNT = 13;
+
+    private TileState(){
+    }
+
+    public static boolean isNumber(byte state){
+        return state <= 8;
+    }
+}
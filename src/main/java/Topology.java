@@ -0,0 +1,308 @@
+package src.main.java;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Which tiles of a {@link Board} touch each other. The tiles are still laid out in rows and columns with
+ * index = y * columnsAmount + x, only the tiles counted as nearby change:
+ * - SQUARE: the usual board, the 8 tiles around a tile.
+ * - TORUS: like SQUARE, but the left edge touches the right edge and the top edge touches the bottom edge.
+ * - HEX: hexagons, every odd row is pushed half a tile to the right, so each tile touches 6 others.
+ * - CUBE: layers of rows and columns stacked on each other, each tile touches the 6 tiles that share a face with
+ *   it. The layers are kept one after another, so on the board layer l row y is row l * rowsAmount + y.
+ *
+ * The neighbours of the other shapes are worked out once into two arrays: the neighbours of tile i are
+ * targets[offsets[i]] up to targets[offsets[i + 1]]. Looking them up is then the same for every shape and never
+ * makes a new array. These topologies are immutable and the last few are kept by {@link #of}, as long as their
+ * arrays together stay under {@link #MAX_SHARED_TARGETS}, so boards of the same shape share the same arrays.
+ *
+ * Square boards are never worked out into arrays, their neighbours are found from x and y as they always were,
+ * since the arrays would take 32 bytes for every tile. They are not kept either, so making one takes no lock.
+ */
+public final class Topology {
+    // No shape has more neighbours than this, so arrays of this size fit the neighbours of any tile
+    public static final int MAX_DEGREE = 8;
+    // Most targets a topology may have, 128 MB
+    private static final long MAX_TARGETS = 1L << 25;
+    private static final int SHARED_AMOUNT = 16;
+    // Most targets kept by the shared topologies together, 32 MB, the newest one is always kept
+    private static final long MAX_SHARED_TARGETS = 1L << 23;
+    // Oldest used first
+    private static final LinkedHashMap<Key, Topology> shared = new LinkedHashMap<>(16, 0.75f, true);
+    private static long sharedTargetsAmount;
+
+    public enum Shape {
+        SQUARE(8),
+        TORUS(8),
+        HEX(6),
+        CUBE(6);
+
+        private final int degree;
+
+        Shape(int degree){
+            this.degree = degree;
+        }
+
+        /**
+         * @return Most tiles a tile of this shape can touch
+         */
+        public int getDegree(){
+            return degree;
+        }
+    }
+
+    private final Shape shape;
+    private final int layersAmount;
+    private final int rowsAmount;
+    private final int columnsAmount;
+    private final int tilesAmount;
+    // Null for square boards too large to work out
+    private final int[] offsets;
+    private final int[] targets;
+
+    private Topology(Shape shape, int layersAmount, int rowsAmount, int columnsAmount){
+        if(layersAmount <= 0 || rowsAmount <= 0 || columnsAmount <= 0){
+            throw new IllegalArgumentException("Board must have at least one layer, row and column");
+        }
+        long tiles = (long) layersAmount * rowsAmount * columnsAmount;
+        if(tiles > Integer.MAX_VALUE){
+            throw new IllegalArgumentException("Board is too large: " + describe(shape, layersAmount, rowsAmount,
+                    columnsAmount));
+        }
+        this.shape = shape;
+        this.layersAmount = layersAmount;
+        this.rowsAmount = rowsAmount;
+        this.columnsAmount = columnsAmount;
+        this.tilesAmount = (int) tiles;
+
+        if(shape == Shape.SQUARE){
+            offsets = null;
+            targets = null;
+            return;
+        }
+        if(tiles * shape.getDegree() > MAX_TARGETS){
+            throw new IllegalArgumentException("Board is too large for a " + shape + " board: "
+                    + describe(shape, layersAmount, rowsAmount, columnsAmount));
+        }
+        offsets = new int[tilesAmount + 1];
+        int[] found = new int[(int) (tiles * shape.getDegree())];
+        int length = 0;
+        for(int index = 0; index < tilesAmount; index++){
+            offsets[index] = length;
+            length = addNeighbours(index, found, length);
+        }
+        offsets[tilesAmount] = length;
+        targets = length == found.length ? found : Arrays.copyOf(found, length);
+    }
+
+    /**
+     * @return The usual board of 8 neighbours. It has no arrays, so it is made again each time without a lock.
+     */
+    public static Topology square(int rowsAmount, int columnsAmount){
+        return new Topology(Shape.SQUARE, 1, rowsAmount, columnsAmount);
+    }
+
+    /**
+     * @param layersAmount Only used by CUBE, it must be 1 for the other shapes
+     * @return The topology, shared with other boards of the same shape and size while it is kept
+     * @throws IllegalArgumentException if the board does not fit
+     */
+    public static Topology of(Shape shape, int layersAmount, int rowsAmount, int columnsAmount){
+        if(shape != Shape.CUBE && layersAmount != 1){
+            throw new IllegalArgumentException("Only CUBE boards have layers");
+        }
+        if(shape == Shape.SQUARE) return square(rowsAmount, columnsAmount);
+        Key key = new Key(shape, layersAmount, rowsAmount, columnsAmount);
+        synchronized(shared){
+            Topology topology = shared.get(key);
+            if(topology != null) return topology;
+        }
+        // Worked out outside the lock, two threads asking at once both work it out and one of them is kept
+        Topology topology = new Topology(shape, layersAmount, rowsAmount, columnsAmount);
+        synchronized(shared){
+            Topology kept = shared.get(key);
+            if(kept != null) return kept;
+            shared.put(key, topology);
+            sharedTargetsAmount += topology.targets.length;
+            Iterator<Topology> oldest = shared.values().iterator();
+            while(shared.size() > 1 && (shared.size() > SHARED_AMOUNT || sharedTargetsAmount > MAX_SHARED_TARGETS)){
+                sharedTargetsAmount -= oldest.next().targets.length;
+                oldest.remove();
+            }
+            return topology;
+        }
+    }
+
+    private static String describe(Shape shape, int layersAmount, int rowsAmount, int columnsAmount){
+        return shape + " " + layersAmount + "x" + rowsAmount + "x" + columnsAmount;
+    }
+
+    public Shape getShape(){
+        return shape;
+    }
+
+    public int getLayersAmount(){
+        return layersAmount;
+    }
+
+    /**
+     * @return Rows of one layer
+     */
+    public int getRowsAmount(){
+        return rowsAmount;
+    }
+
+    public int getColumnsAmount(){
+        return columnsAmount;
+    }
+
+    public int getTilesAmount(){
+        return tilesAmount;
+    }
+
+    /**
+     * @return false for square boards, whose neighbours are found from x and y
+     */
+    public boolean hasTable(){
+        return targets != null;
+    }
+
+    /**
+     * @return Where the neighbours of each tile start in {@link #getTargets()}, one more than there are tiles.
+     *          The array is shared and must not be changed.
+     */
+    int[] getOffsets(){
+        return offsets;
+    }
+
+    /**
+     * @return Neighbours of every tile one after another. The array is shared and must not be changed.
+     */
+    int[] getTargets(){
+        return targets;
+    }
+
+    /**
+     * Puts the indexes of the tiles touching the middle tile into the given array
+     * @param into  Array with room for at least {@link #MAX_DEGREE} indexes
+     * @return  The amount of touching tiles
+     */
+    public int neighbours(int index, int[] into){
+        if(targets == null) return addNeighbours(index, into, 0);
+        int start = offsets[index];
+        int amount = offsets[index + 1] - start;
+        System.arraycopy(targets, start, into, 0, amount);
+        return amount;
+    }
+
+    /**
+     * Works out the neighbours of a tile from its place, smallest index first
+     * @return length plus the amount of neighbours added
+     */
+    private int addNeighbours(int index, int[] into, int length){
+        int x = index % columnsAmount;
+        int row = index / columnsAmount;
+        int y = row % rowsAmount;
+        int layer = row / rowsAmount;
+        int start = length;
+        switch(shape){
+            case SQUARE:
+                boolean hasLeft = x != 0;
+                boolean hasRight = x != columnsAmount - 1;
+                if(y != 0){
+                    int above = index - columnsAmount;
+                    if(hasLeft) into[length++] = above - 1;
+                    into[length++] = above;
+                    if(hasRight) into[length++] = above + 1;
+                }
+                if(hasLeft) into[length++] = index - 1;
+                if(hasRight) into[length++] = index + 1;
+                if(y != rowsAmount - 1){
+                    int below = index + columnsAmount;
+                    if(hasLeft) into[length++] = below - 1;
+                    into[length++] = below;
+                    if(hasRight) into[length++] = below + 1;
+                }
+                return length;
+            case TORUS:
+                for(int dy = -1; dy <= 1; dy++){
+                    int wrappedY = Math.floorMod(y + dy, rowsAmount);
+                    for(int dx = -1; dx <= 1; dx++){
+                        if(dx == 0 && dy == 0) continue;
+                        // Narrow boards wrap onto the same tile more than once, or onto the tile itself
+                        length = addOnce(wrappedY * columnsAmount + Math.floorMod(x + dx, columnsAmount), index,
+                                into, start, length);
+                    }
+                }
+                break;
+            case HEX:
+                // Odd rows are pushed right, so the rows above and below touch x - 1 and x on even rows and
+                // x and x + 1 on odd rows
+                int shift = y & 1;
+                for(int dy = -1; dy <= 1; dy++){
+                    if(y + dy < 0 || y + dy >= rowsAmount) continue;
+                    int fromX = dy == 0 ? x - 1 : x - 1 + shift;
+                    int toX = dy == 0 ? x + 1 : x + shift;
+                    for(int nearX = fromX; nearX <= toX; nearX++){
+                        if((dy != 0 || nearX != x) && nearX >= 0 && nearX < columnsAmount){
+                            into[length++] = index + dy * columnsAmount + nearX - x;
+                        }
+                    }
+                }
+                return length;
+            default:
+                int layerTiles = rowsAmount * columnsAmount;
+                if(layer > 0) into[length++] = index - layerTiles;
+                if(y > 0) into[length++] = index - columnsAmount;
+                if(x > 0) into[length++] = index - 1;
+                if(x < columnsAmount - 1) into[length++] = index + 1;
+                if(y < rowsAmount - 1) into[length++] = index + columnsAmount;
+                if(layer < layersAmount - 1) into[length++] = index + layerTiles;
+                return length;
+        }
+        Arrays.sort(into, start, length);
+        return length;
+    }
+
+    /**
+     * Shape and size of a shared topology
+     */
+    private static final class Key {
+        private final Shape shape;
+        private final int layersAmount;
+        private final int rowsAmount;
+        private final int columnsAmount;
+
+        Key(Shape shape, int layersAmount, int rowsAmount, int columnsAmount){
+            this.shape = shape;
+            this.layersAmount = layersAmount;
+            this.rowsAmount = rowsAmount;
+            this.columnsAmount = columnsAmount;
+        }
+
+        @Override
+        public boolean equals(Object other){
+            if(this == other) return true;
+            if(!(other instanceof Key)) return false;
+            Key key = (Key) other;
+            return shape == key.shape && layersAmount == key.layersAmount && rowsAmount == key.rowsAmount
+                    && columnsAmount == key.columnsAmount;
+        }
+
+        @Override
+        public int hashCode(){
+            return ((shape.ordinal() * 31 + layersAmount) * 31 + rowsAmount) * 31 + columnsAmount;
+        }
+    }
+
+    private static int addOnce(int tile, int index, int[] into, int start, int length){
+        if(tile == index) return length;
+        for(int i = start; i < length; i++){
+            if(into[i] == tile) return length;
+        }
+        into[length++] = tile;
+        return length;
+    }
+}
@@ -0,0 +1,43 @@
+package src.main.java;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BoardSizeTest {
+    @Test
+    void customBoardsAllowEveryTileButTheFirstClick(){
+        assertEquals(99, BoardSize.custom(10, 10, 99).getBombsAmount());
+        assertEquals(0, BoardSize.custom(1, 1, 0).getBombsAmount());
+        assertThrows(IllegalArgumentException.class, () -> BoardSize.custom(10, 10, 100));
+        assertThrows(IllegalArgumentException.class, () -> BoardSize.custom(10, 10, -1));
+    }
+
+    @Test
+    void bombsFitAroundWhereTheGameStarts(){
+        BoardSize size = BoardSize.custom(10, 10, 96);
+        Board board = new Board(10, 10);
+        int corner = board.index(0, 0);
+        int edge = board.index(5, 0);
+        int middle = board.index(5, 5);
+        assertEquals(96, BoardGenerator.maxBombs(board, corner));
+        assertEquals(94, BoardGenerator.maxBombs(board, edge));
+        assertEquals(91, BoardGenerator.maxBombs(board, middle));
+
+        BoardGenerator.placeBombs(board, size.getBombsAmount(), 7, corner);
+        int bombs = 0;
+        for(int index = 0; index < board.getTilesAmount(); index++){
+            if(board.isBomb(index)) bombs++;
+        }
+        assertEquals(96, bombs);
+        for(int index : new int[]{corner, board.index(1, 0), board.index(0, 1), board.index(1, 1)}){
+            assertFalse(board.isBomb(index));
+        }
+
+        board.clear();
+        assertThrows(IllegalArgumentException.class,
+                () -> BoardGenerator.placeBombs(board, size.getBombsAmount(), 7, edge));
+    }
+}
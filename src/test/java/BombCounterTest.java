@@ -0,0 +1,73 @@
+package src.main.java;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BombCounterTest {
+    private static final int[] WIDTHS = {1, 2, 3, 8, 30, 63, 64, 65, 100, 127, 128, 129, 200};
+
+    @Test
+    void matchesNaiveCountOnRandomBoards(){
+        SplittableRandom random = new SplittableRandom(1);
+        for(int columns : WIDTHS){
+            for(int rows : new int[]{1, 2, 3, 17}){
+                for(double density : new double[]{0.05, 0.2, 0.5, 1}){
+                    check(randomBoard(rows, columns, density, random));
+                }
+            }
+        }
+    }
+
+    @Test
+    void matchesNaiveCountWhenCountedInStrips(){
+        // More tiles than BombCounter counts on one thread, with a width that is not a multiple of 64
+        check(randomBoard(700, 401, 0.2, new SplittableRandom(2)));
+    }
+
+    @Test
+    void countsEdgeColumnsAcrossWordBoundaries(){
+        // Bombs only in the first and last columns, so every count near a word or row edge is checked
+        Board board = new Board(5, 129);
+        for(int y = 0; y < 5; y++){
+            board.setBomb(board.index(0, y));
+            board.setBomb(board.index(63, y));
+            board.setBomb(board.index(64, y));
+            board.setBomb(board.index(128, y));
+        }
+        check(board);
+    }
+
+    private static Board randomBoard(int rows, int columns, double density, SplittableRandom random){
+        Board board = new Board(rows, columns);
+        for(int index = 0; index < board.getTilesAmount(); index++){
+            if(random.nextDouble() < density) board.setBomb(index);
+        }
+        return board;
+    }
+
+    private static void check(Board board){
+        board.countBombsNearby();
+        int rows = board.getRowsAmount();
+        int columns = board.getColumnsAmount();
+        for(int y = 0; y < rows; y++){
+            for(int x = 0; x < columns; x++){
+                int expected = 0;
+                for(int dy = -1; dy <= 1; dy++){
+                    for(int dx = -1; dx <= 1; dx++){
+                        int nearX = x + dx;
+                        int nearY = y + dy;
+                        if((dx != 0 || dy != 0) && nearX >= 0 && nearX < columns && nearY >= 0 && nearY < rows
+                                && board.isBomb(board.index(nearX, nearY))){
+                            expected++;
+                        }
+                    }
+                }
+                assertEquals(expected, board.getBombsNearby(board.index(x, y)),
+                        rows + "x" + columns + " board, tile " + x + "," + y);
+            }
+        }
+    }
+}
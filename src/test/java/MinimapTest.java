@@ -0,0 +1,49 @@
+package src.main.java;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MinimapTest {
+    @Test
+    void packedKindsMatchOneKindForEachTile(){
+        int tiles = 200;
+        long[] kinds = new long[(tiles + 31) >>> 5];
+        int[] expected = new int[tiles];
+        SplittableRandom random = new SplittableRandom(3);
+        for(int step = 0; step < 100_000; step++){
+            int index = random.nextInt(tiles);
+            int kind = random.nextInt(4);
+            assertEquals(expected[index], Minimap.setKind(kinds, index, kind), "tile " + index);
+            expected[index] = kind;
+        }
+        for(int index = 0; index < tiles; index++){
+            assertEquals(expected[index], Minimap.getKind(kinds, index), "tile " + index);
+        }
+    }
+
+    @Test
+    void highestTileOfALongDoesNotSpillIntoTheNext(){
+        long[] kinds = new long[2];
+        Minimap.setKind(kinds, 31, Minimap.BOMB);
+        Minimap.setKind(kinds, 32, Minimap.MARKED);
+        assertEquals(Minimap.BOMB, Minimap.getKind(kinds, 31));
+        assertEquals(Minimap.MARKED, Minimap.getKind(kinds, 32));
+        assertEquals(Minimap.BOMB, Minimap.setKind(kinds, 31, Minimap.COVERED));
+        assertEquals(0, kinds[0]);
+        assertEquals(Minimap.MARKED, Minimap.getKind(kinds, 32));
+    }
+
+    @Test
+    void tileStatesMapToTheirKinds(){
+        assertEquals(Minimap.COVERED, Minimap.kindOf(TileState.COVERED));
+        assertEquals(Minimap.MARKED, Minimap.kindOf(TileState.MARKED));
+        assertEquals(Minimap.BOMB, Minimap.kindOf(TileState.BOMB));
+        assertEquals(Minimap.BOMB, Minimap.kindOf(TileState.EXPLODED));
+        for(byte number = 0; number <= 8; number++){
+            assertEquals(Minimap.SHOWN, Minimap.kindOf(number));
+        }
+    }
+}
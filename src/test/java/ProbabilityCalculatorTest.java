@@ -0,0 +1,102 @@
+package src.main.java;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class ProbabilityCalculatorTest {
+    private static final double TOLERANCE = 1e-4;
+
+    @Test
+    void matchesBruteForceAfterTheFirstClick() throws InterruptedException {
+        for(long seed = 0; seed < 40; seed++){
+            Board board = new Board(5, 5);
+            int start = (int) (seed % board.getTilesAmount());
+            BoardGenerator.placeBombs(board, 5 + (int) (seed % 3), seed, start);
+            board.open(start);
+            if(board.isWon()) continue;
+
+            BlockingQueue<ProbabilityMap> maps = new LinkedBlockingQueue<>();
+            ProbabilityCalculator calculator = new ProbabilityCalculator(board, maps::add);
+            check(board, maps.poll(10, TimeUnit.SECONDS), "seed " + seed);
+            calculator.close();
+        }
+    }
+
+    @Test
+    void matchesBruteForceAfterEachMove() throws InterruptedException {
+        Board board = new Board(4, 6);
+        BoardGenerator.placeBombs(board, 6, 7, 0);
+        board.open(0);
+        BlockingQueue<ProbabilityMap> maps = new LinkedBlockingQueue<>();
+        ProbabilityCalculator calculator = new ProbabilityCalculator(board, maps::add);
+        check(board, maps.poll(10, TimeUnit.SECONDS), "first click");
+
+        ChangeBatch changes = new ChangeBatch();
+        board.setChanges(changes);
+        for(int tile = 0; tile < board.getTilesAmount() && !board.isWon(); tile++){
+            if(board.isShown(tile) || board.isBomb(tile)) continue;
+            changes.clear();
+            board.open(tile);
+            calculator.update(changes, 0);
+            check(board, maps.poll(10, TimeUnit.SECONDS), "after opening " + tile);
+        }
+        calculator.close();
+    }
+
+    /**
+     * Goes through every way the bombs left can lie under the covered tiles and counts how often each tile is a
+     * bomb in the ways that fit every number shown
+     */
+    private static void check(Board board, ProbabilityMap map, String name){
+        assertNotNull(map, name + ": no map came");
+        List<Integer> covered = new ArrayList<>();
+        for(int tile = 0; tile < board.getTilesAmount(); tile++){
+            if(!board.isShown(tile)) covered.add(tile);
+        }
+        boolean[] bomb = new boolean[board.getTilesAmount()];
+        long[] bombCounts = new long[board.getTilesAmount()];
+        long ways = count(board, covered, 0, board.getBombsAmount(), bomb, bombCounts);
+        for(int tile : covered){
+            assertEquals((double) bombCounts[tile] / ways, map.get(tile), TOLERANCE, name + ", tile " + tile);
+        }
+    }
+
+    private static long count(Board board, List<Integer> covered, int next, int bombsLeft, boolean[] bomb,
+                              long[] bombCounts){
+        if(bombsLeft == 0){
+            if(!fits(board, bomb)) return 0;
+            for(int tile : covered){
+                if(bomb[tile]) bombCounts[tile]++;
+            }
+            return 1;
+        }
+        if(covered.size() - next < bombsLeft) return 0;
+        int tile = covered.get(next);
+        bomb[tile] = true;
+        long ways = count(board, covered, next + 1, bombsLeft - 1, bomb, bombCounts);
+        bomb[tile] = false;
+        return ways + count(board, covered, next + 1, bombsLeft, bomb, bombCounts);
+    }
+
+    private static boolean fits(Board board, boolean[] bomb){
+        int[] neighbours = new int[Topology.MAX_DEGREE];
+        for(int tile = 0; tile < board.getTilesAmount(); tile++){
+            if(!board.isShown(tile)) continue;
+            int amount = board.neighbours(tile, neighbours);
+            int bombs = 0;
+            for(int i = 0; i < amount; i++){
+                if(bomb[neighbours[i]]) bombs++;
+            }
+            if(bombs != board.getBombsNearby(tile)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,181 @@
+package src.main.java;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TerminalGameTest {
+    private static final int ROWS = 24;
+    private static final int COLUMNS = 80;
+    // The whole expert board fits, the status and the keys are under it
+    private static final int BOARD_ROWS = 16;
+    private static final int BOARD_COLUMNS = 30;
+
+    @Test
+    void keysOnlyWriteTheTilesTheyChanged() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TerminalGame game = new TerminalGame(BoardSize.of(Difficulty.EXPERT), 5, ROWS, COLUMNS, out);
+        Screen screen = new Screen();
+        game.start();
+        screen.write(out);
+        int changedAmount = 0;
+        String[] keys = {"l", "l", " ", "j", "j", "j", "f", "h", "h", "h", "h", " ", "k", " ", "L", " ", "f", "f"};
+        for(String key : keys){
+            String[] before = screen.board();
+            game.key(key.charAt(0));
+            Set<Integer> written = screen.write(out);
+            String[] after = screen.board();
+            for(int cell = 0; cell < after.length; cell++){
+                boolean changed = !after[cell].equals(before[cell]);
+                assertEquals(changed, written.contains(cell), "key '" + key + "', cell " + cell);
+                if(changed) changedAmount++;
+            }
+        }
+        assertTrue(changedAmount > 10, "only " + changedAmount + " tiles changed");
+
+        Screen redrawn = new Screen();
+        game.redraw(ROWS, COLUMNS);
+        redrawn.write(out);
+        assertArrayEquals(redrawn.board(), screen.board());
+    }
+
+    @Test
+    void movingTheCursorWritesNoTiles() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TerminalGame game = new TerminalGame(BoardSize.of(Difficulty.EXPERT), 5, ROWS, COLUMNS, out);
+        game.start();
+        out.reset();
+        game.key('l');
+        assertEquals("\033[9;33H", out.toString(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void arrowKeySplitOverReadsIsOneKey() throws Exception {
+        PipedOutputStream keys = new PipedOutputStream();
+        PipedInputStream in = new PipedInputStream(keys);
+        Thread typist = new Thread(() -> {
+            try{
+                keys.write(27);
+                keys.flush();
+                Thread.sleep(30);
+                keys.write('[');
+                keys.flush();
+                Thread.sleep(30);
+                keys.write('A');
+                keys.write('q');
+                keys.close();
+            }catch(IOException | InterruptedException e){
+                throw new RuntimeException(e);
+            }
+        });
+        typist.start();
+        int up = TerminalGame.readKey(in);
+        assertTrue(up < 0, "arrow key read as " + up);
+        assertEquals('q', TerminalGame.readKey(in));
+        typist.join();
+    }
+
+    @Test
+    void loneEscapeIsIgnored() throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(new byte[]{27});
+        assertEquals(0, TerminalGame.readKey(in));
+        assertFalse(TerminalGame.readKey(in) == 0);
+        assertEquals('j', TerminalGame.readKey(new ByteArrayInputStream(new byte[]{27, 'j'})));
+    }
+
+    /**
+     * Follows the escape codes the game writes, keeping the character and colour of every screen cell
+     */
+    private static final class Screen {
+        private final char[][] glyphs = new char[ROWS][COLUMNS];
+        private final String[][] colors = new String[ROWS][COLUMNS];
+        private int row;
+        private int column;
+        private String color = "0";
+        private int read;
+
+        Screen(){
+            clear();
+        }
+
+        /**
+         * Plays what the game wrote since the last call
+         * @return Tiles of the board written to, as row * columns + column of the tile
+         */
+        Set<Integer> write(ByteArrayOutputStream out){
+            String text = out.toString(StandardCharsets.US_ASCII).substring(read);
+            read += text.length();
+            Set<Integer> written = new HashSet<>();
+            int i = 0;
+            while(i < text.length()){
+                char c = text.charAt(i);
+                if(c != '\033'){
+                    if(row < BOARD_ROWS) written.add(row * BOARD_COLUMNS + column / 2);
+                    glyphs[row][column] = c;
+                    colors[row][column] = color;
+                    column++;
+                    i++;
+                    continue;
+                }
+                int end = i + 2;
+                while(!Character.isLetter(text.charAt(end))) end++;
+                String arguments = text.substring(i + 2, end);
+                switch(text.charAt(end)){
+                    case 'H':
+                        String[] place = arguments.split(";");
+                        row = Integer.parseInt(place[0]) - 1;
+                        column = Integer.parseInt(place[1]) - 1;
+                        break;
+                    case 'm':
+                        color = arguments;
+                        break;
+                    case 'J':
+                        clear();
+                        break;
+                    case 'K':
+                        Arrays.fill(glyphs[row], column, COLUMNS, ' ');
+                        break;
+                    default:
+                        // Switching between the terminal's screens
+                        break;
+                }
+                i = end + 1;
+            }
+            return written;
+        }
+
+        /**
+         * @return Character and colour of every tile of the board
+         */
+        String[] board(){
+            String[] tiles = new String[BOARD_ROWS * BOARD_COLUMNS];
+            for(int y = 0; y < BOARD_ROWS; y++){
+                for(int x = 0; x < BOARD_COLUMNS * 2; x += 2){
+                    tiles[y * BOARD_COLUMNS + x / 2] = glyphs[y][x] + colors[y][x] + glyphs[y][x + 1]
+                            + colors[y][x + 1];
+                }
+            }
+            return tiles;
+        }
+
+        private void clear(){
+            for(int y = 0; y < ROWS; y++){
+                Arrays.fill(glyphs[y], ' ');
+                Arrays.fill(colors[y], "0");
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package src.main.java;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThreeBVTest {
+    @Test
+    void matchesFloodFillOnSquareBoards(){
+        for(Difficulty difficulty : Difficulty.values()){
+            BoardSize size = BoardSize.of(difficulty);
+            for(long seed = 0; seed < 200; seed++){
+                Board board = BoardGenerator.generate(size, seed, (int) (seed % size.getTilesAmount()));
+                assertEquals(floodFillThreeBV(board), board.getThreeBV(), difficulty + " seed " + seed);
+            }
+        }
+    }
+
+    @Test
+    void matchesFloodFillOnOtherShapes(){
+        Topology[] topologies = {
+                Topology.of(Topology.Shape.TORUS, 1, 12, 17),
+                Topology.of(Topology.Shape.HEX, 1, 15, 13),
+                Topology.of(Topology.Shape.CUBE, 4, 6, 7),
+                Topology.square(1, 70),
+                Topology.square(33, 65)
+        };
+        for(Topology topology : topologies){
+            for(long seed = 0; seed < 100; seed++){
+                int bombs = (int) (topology.getTilesAmount() * (0.05 + seed % 5 * 0.05));
+                Board board = BoardGenerator.generate(topology, bombs, seed, 0);
+                assertEquals(floodFillThreeBV(board), board.getThreeBV(), topology.getShape() + " seed " + seed);
+            }
+        }
+    }
+
+    @Test
+    void isWorkedOutAgainAfterTheBombsChange(){
+        BoardSize size = BoardSize.of(Difficulty.EXPERT);
+        Board board = BoardGenerator.generate(size, 1, 0);
+        board.getThreeBV();
+        board.clear();
+        BoardGenerator.placeBombs(board, size.getBombsAmount(), 2, 0);
+        assertEquals(floodFillThreeBV(board), board.getThreeBV());
+    }
+
+    @Test
+    void generatorKeepsBoardsInTheRange(){
+        BoardSize size = BoardSize.of(Difficulty.EASY);
+        for(long seed = 0; seed < 20; seed++){
+            Board board = new Board(size.getRowsAmount(), size.getColumnsAmount());
+            long kept = BoardGenerator.placeBombs(board, size.getBombsAmount(), seed * 1000, 40, 18, 22);
+            assertInRange(board.getThreeBV(), 18, 22);
+            // The seed handed back makes the same board again
+            assertEquals(board.getThreeBV(), BoardGenerator.generate(size, kept, 40).getThreeBV());
+        }
+        Board board = new Board(size.getRowsAmount(), size.getColumnsAmount());
+        assertThrows(IllegalArgumentException.class, () -> BoardGenerator.placeBombs(board,
+                size.getBombsAmount(), 0, 40, size.getTilesAmount() + 1, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void poolHandsOutBoardsInTheRangeThatNeedNoGuessing() throws InterruptedException {
+        BoardSize size = BoardSize.of(Difficulty.EASY);
+        BoardPool pool = new BoardPool(2, 8, 12);
+        for(int start : new int[]{0, 40, 80}){
+            for(int i = 0; i < 3; i++){
+                long seed = pool.take(size, start);
+                Board board = BoardGenerator.generate(size, seed, start);
+                assertInRange(board.getThreeBV(), 8, 12);
+                assertTrue(new Solver(false).play(board, start), "seed " + seed + " needs guessing");
+            }
+        }
+    }
+
+    private static void assertInRange(int threeBV, int min, int max){
+        assertTrue(threeBV >= min && threeBV <= max, "3BV " + threeBV + " is not between " + min + " and " + max);
+    }
+
+    /**
+     * Every opening, found by flooding through tiles with no bombs nearby, is one click, and so is every other
+     * tile without a bomb that no opening shows
+     */
+    private static int floodFillThreeBV(Board board){
+        int tiles = board.getTilesAmount();
+        boolean[] reached = new boolean[tiles];
+        int[] neighbours = new int[Topology.MAX_DEGREE];
+        Deque<Integer> queue = new ArrayDeque<>();
+        int clicks = 0;
+        for(int tile = 0; tile < tiles; tile++){
+            if(reached[tile] || board.isBomb(tile) || board.getBombsNearby(tile) != 0) continue;
+            clicks++;
+            reached[tile] = true;
+            queue.add(tile);
+            while(!queue.isEmpty()){
+                int opened = queue.poll();
+                if(board.getBombsNearby(opened) != 0) continue;
+                int amount = board.neighbours(opened, neighbours);
+                for(int i = 0; i < amount; i++){
+                    int near = neighbours[i];
+                    if(!reached[near] && !board.isBomb(near)){
+                        reached[near] = true;
+                        queue.add(near);
+                    }
+                }
+            }
+        }
+        for(int tile = 0; tile < tiles; tile++){
+            if(!reached[tile] && !board.isBomb(tile)) clicks++;
+        }
+        return clicks;
+    }
+}